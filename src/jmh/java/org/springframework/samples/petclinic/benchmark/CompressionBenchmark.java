@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost and benefit of response compression over HTTP against the embedded Tomcat, for the owner list page and the
+ * vet list as JSON on a generated data set: uncompressed, and gzipped at levels 1, 6 and 9. JMH reports the time per
+ * request; the bytes on the wire and the process CPU time per request, client included, are printed at the end of
+ * each run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({ "identity", "1", "6", "9" })
+    public String encoding;
+
+    private ConfigurableApplicationContext context;
+
+    private String baseUrl;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private long cpuStart;
+
+    @Setup
+    public void setup() {
+        this.context = PetClinicContext.start(WebApplicationType.SERVLET, "production,datagen",
+            "--petclinic.datagen.owners=2000",
+            "--petclinic.datagen.vets=200",
+            "--petclinic.compression.defaults.level=" + ("identity".equals(this.encoding) ? "6" : this.encoding));
+        int port = ((ServletWebServerApplicationContext) this.context).getWebServer().getPort();
+        this.baseUrl = "http://localhost:" + port;
+        this.cpuStart = processCpuTime();
+    }
+
+    @TearDown
+    public void tearDown(BenchmarkParams params) {
+        long requests = Math.max(this.requests.get(), 1);
+        System.out.printf("%n%s [%s]: %d bytes on the wire, %d us CPU per request%n", params.getBenchmark(),
+            this.encoding, this.bytes.get() / requests,
+            TimeUnit.NANOSECONDS.toMicros(processCpuTime() - this.cpuStart) / requests);
+        this.context.close();
+    }
+
+    @Benchmark
+    public int ownersList() throws IOException {
+        return get("/owners?lastName=", "text/html");
+    }
+
+    @Benchmark
+    public int vetsJson() throws IOException {
+        return get("/vets", "application/json");
+    }
+
+    private int get(String path, String accept) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + path).openConnection();
+        connection.setRequestProperty("Accept", accept);
+        if (!"identity".equals(this.encoding)) {
+            // HttpURLConnection does not decompress, so the body is read as sent
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        int status = connection.getResponseCode();
+        byte[] buffer = new byte[8192];
+        int length = 0;
+        try (InputStream body = connection.getInputStream()) {
+            for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                length += read;
+            }
+        }
+        this.requests.incrementAndGet();
+        this.bytes.addAndGet(length);
+        return status + length;
+    }
+
+    private static long processCpuTime() {
+        return ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * Cost of the sorted collection getters on {@link Owner}, {@link Pet} and {@link Vet}, as called repeatedly while
+ * rendering a page. The <code>reflectiveSort*</code> benchmarks reproduce the previous implementation, which copied
+ * and sorted the children with {@link PropertyComparator} on every call, as the baseline.
+ * <p>
+ * Run with <code>./mvnw -Pbenchmarks test-compile exec:exec -Dbenchmark=EntityGetterBenchmark</code>; the GC
+ * profiler reports the allocation per call (<code>gc.alloc.rate.norm</code>).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityGetterBenchmark {
+
+    @Param({ "3", "30" })
+    private int children;
+
+    private Owner owner;
+
+    private Pet pet;
+
+    private Vet vet;
+
+    @Setup
+    public void setup() {
+        this.owner = new Owner();
+        this.pet = new Pet();
+        this.vet = new Vet();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < this.children; i++) {
+            // add in reverse order so that sorting has work to do
+            int n = this.children - i;
+            Pet child = new Pet();
+            child.setName("pet" + n);
+            this.owner.addPet(child);
+
+            Visit visit = new Visit();
+            visit.setDate(new Date(now - TimeUnit.DAYS.toMillis(i)));
+            this.pet.addVisit(visit);
+
+            Specialty specialty = new Specialty();
+            specialty.setName("specialty" + n);
+            this.vet.addSpecialty(specialty);
+        }
+    }
+
+    @Benchmark
+    public List<Pet> ownerGetPets() {
+        return this.owner.getPets();
+    }
+
+    @Benchmark
+    public List<Visit> petGetVisits() {
+        return this.pet.getVisits();
+    }
+
+    @Benchmark
+    public List<Specialty> vetGetSpecialties() {
+        return this.vet.getSpecialties();
+    }
+
+    @Benchmark
+    public List<Pet> reflectiveSortPets() {
+        return reflectiveSort(this.owner.getPets(), new MutableSortDefinition("name", true, true));
+    }
+
+    @Benchmark
+    public List<Visit> reflectiveSortVisits() {
+        return reflectiveSort(this.pet.getVisits(), new MutableSortDefinition("date", false, false));
+    }
+
+    @Benchmark
+    public List<Specialty> reflectiveSortSpecialties() {
+        return reflectiveSort(this.vet.getSpecialties(), new MutableSortDefinition("name", true, true));
+    }
+
+    private static <T> List<T> reflectiveSort(List<T> source, MutableSortDefinition sortDefinition) {
+        List<T> sorted = new ArrayList<>(source);
+        PropertyComparator.sort(sorted, sortDefinition);
+        return Collections.unmodifiableList(sorted);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+
+/**
+ * Owner queries against the seeded HSQLDB database. Runs without the <code>production</code> profile, so every
+ * call reaches the database instead of the <code>owners</code> cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerRepositoryBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private OwnerRepository owners;
+
+    @Setup
+    public void setup() {
+        this.context = PetClinicContext.start(WebApplicationType.NONE, "benchmark");
+        this.owners = this.context.getBean(OwnerRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public Collection<Owner> findByLastNameAll() {
+        return this.owners.findByLastName("");
+    }
+
+    @Benchmark
+    public Collection<Owner> findByLastNamePrefix() {
+        return this.owners.findByLastName("Davis");
+    }
+
+    @Benchmark
+    public List<Owner> findFirstPage() {
+        List<Integer> ids = this.owners.findIdPageByLastName("", PageRequest.of(0, 21));
+        return this.owners.findAllWithPetsByIdIn(ids);
+    }
+
+    @Benchmark
+    public List<OwnerSummary> findFirstPageSummaries() {
+        List<Integer> ids = this.owners.findIdPageByLastName("", PageRequest.of(0, 21));
+        return this.owners.findSummariesByIdIn(ids);
+    }
+
+    @Benchmark
+    public Owner findById() {
+        return this.owners.findById(6);
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Starts the application for benchmarks, against the HSQLDB database seeded from <code>db/hsqldb</code>.
+ */
+final class PetClinicContext {
+
+    private PetClinicContext() {
+    }
+
+    /**
+     * @param webApplicationType {@link WebApplicationType#NONE} for data access only, or
+     * {@link WebApplicationType#SERVLET} to drive the controllers through MockMvc
+     * @param profile the Spring profile to run with; <code>production</code> enables the caches
+     * @param properties additional properties, as <code>--name=value</code> arguments
+     * @return the running application context, to be closed in the benchmark's tear-down
+     */
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String profile,
+                                                String... properties) {
+        // command line arguments, so that they win over application.properties
+        List<String> args = new ArrayList<>(Arrays.asList("--spring.profiles.active=" + profile,
+            "--server.port=0",
+            "--spring.devtools.restart.enabled=false",
+            "--logging.level.root=WARN"));
+        args.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(PetClinicApplication.class)
+            .web(webApplicationType)
+            .run(args.toArray(new String[0]));
+    }
+
+}
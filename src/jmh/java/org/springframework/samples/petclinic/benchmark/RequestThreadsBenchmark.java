@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Load test of the embedded Tomcat over HTTP: 256 concurrent clients against a worker pool capped at 32 threads,
+ * compared with one worker thread per client, with more database connections than worker threads so that the pool is
+ * the limit. Sample time mode reports the latency percentiles (p99 included) and the throughput shows the concurrency
+ * reached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class RequestThreadsBenchmark {
+
+    @Param({ "32", "256" })
+    public int maxThreads;
+
+    private ConfigurableApplicationContext context;
+
+    private String baseUrl;
+
+    @Setup
+    public void setup() {
+        // without the production profile there is no owner cache, so every request blocks on JDBC
+        this.context = PetClinicContext.start(WebApplicationType.SERVLET, "default",
+            "--server.tomcat.max-threads=" + this.maxThreads,
+            "--spring.datasource.hikari.maximum-pool-size=" + (this.maxThreads + 32));
+        int port = ((ServletWebServerApplicationContext) this.context).getWebServer().getPort();
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public int ownerDetails() throws IOException {
+        return get("/owners/6");
+    }
+
+    @Benchmark
+    public int ownersList() throws IOException {
+        return get("/owners?lastName=");
+    }
+
+    private int get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + path).openConnection();
+        int status = connection.getResponseCode();
+        // read the whole body, so that the connection is kept alive for the next request
+        byte[] buffer = new byte[8192];
+        int length = 0;
+        try (InputStream body = connection.getInputStream()) {
+            for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                length += read;
+            }
+        }
+        return status + length;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+
+/**
+ * Visit insert throughput, in rows per second: one transaction per visit through <code>save</code> against one
+ * batched transaction per {@value #VISITS} visits through <code>saveAll</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitInsertBenchmark {
+
+    private static final int VISITS = 500;
+
+    private ConfigurableApplicationContext context;
+
+    private VisitRepository visits;
+
+    @Setup
+    public void setup() {
+        this.context = PetClinicContext.start(WebApplicationType.NONE, "benchmark");
+        this.visits = this.context.getBean(VisitRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VISITS)
+    public void saveOneByOne() {
+        for (Visit visit : newVisits()) {
+            this.visits.save(visit);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VISITS)
+    public void saveAll() {
+        this.visits.saveAll(newVisits());
+    }
+
+    private static List<Visit> newVisits() {
+        List<Visit> visits = new ArrayList<>(VISITS);
+        for (int i = 0; i < VISITS; i++) {
+            Visit visit = new Visit();
+            visit.setPetId(7);
+            visit.setDescription("checkup");
+            visits.add(visit);
+        }
+        return visits;
+    }
+
+}
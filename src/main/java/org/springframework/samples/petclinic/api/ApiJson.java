@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * JSON representations of the API resources, written field by field with a Jackson {@link JsonGenerator}. Entities
+ * are never handed to the object mapper, so their bidirectional associations and lazy collections are not an issue,
+ * and collections can be written as their rows are read.
+ */
+final class ApiJson {
+
+    private ApiJson() {
+    }
+
+    /**
+     * @param mapper the application object mapper, providing the generator configuration
+     * @param body writes the JSON document
+     * @return a response that runs the writer on the response stream, flushing as it goes
+     */
+    static ResponseEntity<StreamingResponseBody> stream(ObjectMapper mapper, Writer body) {
+        StreamingResponseBody stream = (OutputStream out) -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                body.write(json);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(stream);
+    }
+
+    static void writeOwnerSummary(JsonGenerator json, OwnerSummary owner) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", owner.getId());
+        json.writeStringField("firstName", owner.getFirstName());
+        json.writeStringField("lastName", owner.getLastName());
+        json.writeStringField("address", owner.getAddress());
+        json.writeStringField("city", owner.getCity());
+        json.writeStringField("telephone", owner.getTelephone());
+        json.writeArrayFieldStart("pets");
+        for (String pet : owner.getPets()) {
+            json.writeString(pet);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    static void writeOwner(JsonGenerator json, Owner owner) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", owner.getId());
+        json.writeStringField("firstName", owner.getFirstName());
+        json.writeStringField("lastName", owner.getLastName());
+        json.writeStringField("address", owner.getAddress());
+        json.writeStringField("city", owner.getCity());
+        json.writeStringField("telephone", owner.getTelephone());
+        json.writeArrayFieldStart("pets");
+        for (Pet pet : owner.getPets()) {
+            writePet(json, pet);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    static void writePet(JsonGenerator json, Pet pet) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", pet.getId());
+        json.writeStringField("name", pet.getName());
+        json.writeStringField("birthDate", formatDate(pet.getBirthDate()));
+        json.writeStringField("type", pet.getType() != null ? pet.getType().getName() : null);
+        if (pet.getOwner() != null) {
+            json.writeNumberField("ownerId", pet.getOwner().getId());
+        }
+        json.writeEndObject();
+    }
+
+    static void writeVisit(JsonGenerator json, Visit visit) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", visit.getId());
+        json.writeNumberField("petId", visit.getPetId());
+        json.writeStringField("date", formatDate(visit.getDate()));
+        json.writeStringField("description", visit.getDescription());
+        json.writeEndObject();
+    }
+
+    private static String formatDate(Date date) {
+        // java.sql.Date does not support toInstant()
+        return date == null ? null
+            : Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toString();
+    }
+
+    @FunctionalInterface
+    interface Writer {
+
+        void write(JsonGenerator json) throws IOException;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * JSON API for owners and pets. The owner list is streamed from the database one owner at a time, so exporting all
+ * owners needs no more memory than a single row.
+ */
+@RestController
+@RequestMapping("/api")
+class OwnerApiController {
+
+    private final OwnerRepository owners;
+    private final PetRepository pets;
+    private final ObjectMapper mapper;
+
+    public OwnerApiController(OwnerRepository owners, PetRepository pets, ObjectMapper mapper) {
+        this.owners = owners;
+        this.pets = pets;
+        this.mapper = mapper;
+    }
+
+    @GetMapping("/owners")
+    public ResponseEntity<StreamingResponseBody> listOwners(
+        @RequestParam(value = "lastName", defaultValue = "") String lastName) {
+        return ApiJson.stream(this.mapper, json -> {
+            json.writeStartArray();
+            this.owners.forEachSummaryByLastName(lastName, owner -> {
+                try {
+                    ApiJson.writeOwnerSummary(json, owner);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            json.writeEndArray();
+        });
+    }
+
+    @GetMapping("/owners/{ownerId}")
+    public ResponseEntity<StreamingResponseBody> showOwner(@PathVariable("ownerId") int ownerId) {
+        Owner owner = this.owners.findById(ownerId);
+        if (owner == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ApiJson.stream(this.mapper, json -> ApiJson.writeOwner(json, owner));
+    }
+
+    @GetMapping("/pets/{petId}")
+    public ResponseEntity<StreamingResponseBody> showPet(@PathVariable("petId") int petId) {
+        Pet pet = this.pets.findById(petId);
+        if (pet == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ApiJson.stream(this.mapper, json -> ApiJson.writePet(json, pet));
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * JSON API for visits. A visit history is streamed from the database as it is read.
+ */
+@RestController
+@RequestMapping("/api")
+class VisitApiController {
+
+    private final VisitRepository visits;
+    private final PetRepository pets;
+    private final ObjectMapper mapper;
+
+    public VisitApiController(VisitRepository visits, PetRepository pets, ObjectMapper mapper) {
+        this.visits = visits;
+        this.pets = pets;
+        this.mapper = mapper;
+    }
+
+    @GetMapping("/pets/{petId}/visits")
+    public ResponseEntity<StreamingResponseBody> listVisits(@PathVariable("petId") int petId) {
+        if (this.pets.findById(petId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ApiJson.stream(this.mapper, json -> {
+            json.writeStartArray();
+            this.visits.forEachByPetId(petId, visit -> {
+                try {
+                    ApiJson.writeVisit(json, visit);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            json.writeEndArray();
+        });
+    }
+
+}
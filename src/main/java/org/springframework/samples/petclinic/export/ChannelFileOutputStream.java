@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file through a {@link FileChannel} and one direct buffer, so the written bytes are handed to the operating
+ * system without intermediate heap buffers and in large writes. Unlike a memory-mapped file, nothing stays mapped
+ * after {@link #close()}, and the file is never grown beyond the bytes actually written.
+ */
+final class ChannelFileOutputStream extends OutputStream {
+
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private long flushed;
+
+    ChannelFileOutputStream(Path file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    ChannelFileOutputStream(Path file, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!this.buffer.hasRemaining()) {
+            drain();
+        }
+        this.buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    long size() {
+        return this.buffer == null ? this.flushed : this.flushed + this.buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.buffer == null) {
+            return;
+        }
+        try {
+            drain();
+            this.channel.force(false);
+        } finally {
+            this.buffer = null;
+            this.channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.flushed += this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.buffer == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports owners, pets, visits and vets into one NDJSON file per table (<code>owners.ndjson</code>,
+ * <code>pets.ndjson</code>, <code>visits.ndjson</code> and <code>vets.ndjson</code>), for reporting.
+ * <p>
+ * Each table is read through a forward-only, read-only JDBC cursor and every row is written as soon as it is read,
+ * through a {@link ChannelFileOutputStream}; neither the rows nor the files are ever held on the heap, so the export
+ * uses the same memory for any size of data set. All tables are read in one read-only transaction.
+ * </p>
+ * Unless the URL sets <code>useCursorFetch=true</code>, MySQL Connector/J only streams result sets with a fetch size of
+ * {@link Integer#MIN_VALUE} and otherwise reads the whole result into memory, so that fetch size is used on MySQL;
+ * other databases use <code>petclinic.export.fetch-size</code> rows per round trip.
+ */
+@Component
+public class ClinicExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicExporter.class);
+
+    private static final String OWNERS =
+        "SELECT id, first_name, last_name, address, city, telephone FROM owners ORDER BY id";
+
+    private static final String PETS = "SELECT p.id, p.name, p.birth_date, t.name, p.owner_id "
+        + "FROM pets p JOIN types t ON t.id = p.type_id ORDER BY p.id";
+
+    private static final String VISITS = "SELECT id, pet_id, visit_date, description FROM visits ORDER BY id";
+
+    private static final String VETS = "SELECT v.id, v.first_name, v.last_name, s.name FROM vets v "
+        + "LEFT JOIN vet_specialties vs ON vs.vet_id = v.id LEFT JOIN specialties s ON s.id = vs.specialty_id "
+        + "ORDER BY v.id, s.name";
+
+    private final DataSource dataSource;
+
+    private final TransactionTemplate transactions;
+
+    private final int fetchSize;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ClinicExporter(DataSource dataSource, PlatformTransactionManager transactionManager,
+                          @Value("${petclinic.export.fetch-size:1000}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Export all tables into the given directory, replacing earlier exports.
+     * @param directory the directory to write to, created if missing
+     * @return the number of rows written per file, in export order
+     */
+    public Map<String, Long> export(Path directory) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        JdbcTemplate jdbc = new JdbcTemplate(this.dataSource);
+        jdbc.setFetchSize(isMySql() ? Integer.MIN_VALUE : this.fetchSize);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        try {
+            this.transactions.execute(status -> {
+                rows.put("owners", exportRows(jdbc, directory.resolve("owners.ndjson"), OWNERS, this::writeOwner));
+                rows.put("pets", exportRows(jdbc, directory.resolve("pets.ndjson"), PETS, this::writePet));
+                rows.put("visits", exportRows(jdbc, directory.resolve("visits.ndjson"), VISITS, this::writeVisit));
+                rows.put("vets", exportVets(jdbc, directory.resolve("vets.ndjson")));
+                return null;
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        logger.info("Exported {} to {} in {} ms", rows, directory, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private boolean isMySql() {
+        try {
+            String product = (String) JdbcUtils.extractDatabaseMetaData(this.dataSource, "getDatabaseProductName");
+            return product != null && product.toLowerCase().contains("mysql");
+        } catch (MetaDataAccessException ex) {
+            return false;
+        }
+    }
+
+    private long exportRows(JdbcTemplate jdbc, Path file, String sql, RowWriter writer) {
+        long[] count = new long[1];
+        try (JsonGenerator json = open(file)) {
+            jdbc.query(sql, rs -> {
+                try {
+                    json.writeStartObject();
+                    writer.write(json, rs);
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                count[0]++;
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return count[0];
+    }
+
+    /**
+     * Vets are read joined with their specialties, one row per specialty, and written as one line per vet.
+     */
+    private long exportVets(JdbcTemplate jdbc, Path file) {
+        long[] count = new long[1];
+        int[] vetId = new int[1];
+        try (JsonGenerator json = open(file)) {
+            jdbc.query(VETS, rs -> {
+                try {
+                    int id = rs.getInt(1);
+                    if (count[0] == 0 || id != vetId[0]) {
+                        if (count[0] > 0) {
+                            endVet(json);
+                        }
+                        vetId[0] = id;
+                        json.writeStartObject();
+                        json.writeNumberField("id", id);
+                        json.writeStringField("firstName", rs.getString(2));
+                        json.writeStringField("lastName", rs.getString(3));
+                        json.writeArrayFieldStart("specialties");
+                        count[0]++;
+                    }
+                    String specialty = rs.getString(4);
+                    if (specialty != null) {
+                        json.writeString(specialty);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (count[0] > 0) {
+                endVet(json);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return count[0];
+    }
+
+    private static void endVet(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private JsonGenerator open(Path file) throws IOException {
+        JsonGenerator json = this.jsonFactory.createGenerator(new ChannelFileOutputStream(file));
+        // one value per line, separated by the newlines written after each row
+        json.setRootValueSeparator(null);
+        return json;
+    }
+
+    private void writeOwner(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeNumberField("id", rs.getInt(1));
+        json.writeStringField("firstName", rs.getString(2));
+        json.writeStringField("lastName", rs.getString(3));
+        json.writeStringField("address", rs.getString(4));
+        json.writeStringField("city", rs.getString(5));
+        json.writeStringField("telephone", rs.getString(6));
+    }
+
+    private void writePet(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeNumberField("id", rs.getInt(1));
+        json.writeStringField("name", rs.getString(2));
+        writeDate(json, "birthDate", rs.getDate(3));
+        json.writeStringField("type", rs.getString(4));
+        json.writeNumberField("ownerId", rs.getInt(5));
+    }
+
+    private void writeVisit(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeNumberField("id", rs.getInt(1));
+        json.writeNumberField("petId", rs.getInt(2));
+        writeDate(json, "date", rs.getDate(3));
+        json.writeStringField("description", rs.getString(4));
+    }
+
+    private static void writeDate(JsonGenerator json, String field, Date date) throws IOException {
+        if (date == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeStringField(field, date.toLocalDate().toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+
+        void write(JsonGenerator json, ResultSet rs) throws IOException, SQLException;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports all data into the directory given by <code>petclinic.export.dir</code> at startup.
+ * <p>
+ * For example: <code>./mvnw spring-boot:run -Dspring-boot.run.arguments=--petclinic.export.dir=export</code>
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "petclinic.export", name = "dir")
+class ExportRunner implements CommandLineRunner {
+
+    private final ClinicExporter exporter;
+
+    private final String directory;
+
+    ExportRunner(ClinicExporter exporter, @Value("${petclinic.export.dir}") String directory) {
+        this.exporter = exporter;
+        this.directory = directory;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        this.exporter.export(Paths.get(this.directory));
+    }
+
+}
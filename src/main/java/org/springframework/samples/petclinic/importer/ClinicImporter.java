@@ -0,0 +1,412 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSearchIndex;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.owner.PetTypeRegistry;
+import org.springframework.samples.petclinic.owner.PetValidator;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+
+/**
+ * Bulk import of owners with their pets and visits from CSV or NDJSON (see {@link ImportFormat}).
+ * <p>
+ * The input is read one owner at a time and never held in memory as a whole. Every owner is validated like the forms
+ * validate it (bean validation for owners and visits, {@link PetValidator} for pets); an owner failing validation is
+ * rejected together with its pets and visits and reported with its line number. Valid owners are written in
+ * transactions of {@value #CHUNK_SIZE} owners, using JDBC batching. If the database refuses a chunk anyway, its owners
+ * are written again one per transaction, so that only the failing owners are rejected and reported.
+ * </p>
+ * <p>
+ * Written entities are detached after each chunk: an import over HTTP shares the persistence context of the request
+ * (open session in view), which would otherwise keep every imported owner, pet and visit and check them all for
+ * changes on each flush.
+ * </p>
+ */
+@Component
+public class ClinicImporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(ClinicImporter.class);
+
+    private final OwnerRepository owners;
+
+    private final VisitRepository visits;
+
+    private final PetTypeRegistry petTypes;
+
+    private final OwnerSearchIndex searchIndex;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactions;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final PetValidator petValidator = new PetValidator();
+
+    public ClinicImporter(OwnerRepository owners, VisitRepository visits, PetTypeRegistry petTypes,
+                          OwnerSearchIndex searchIndex, Validator validator,
+                          PlatformTransactionManager transactionManager, EntityManager entityManager) {
+        this.owners = owners;
+        this.visits = visits;
+        this.petTypes = petTypes;
+        this.searchIndex = searchIndex;
+        this.validator = validator;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Import all owners of the given input.
+     * @param input the CSV or NDJSON text
+     * @param format the format of the input
+     * @return what was imported and rejected
+     * @throws IOException if the input cannot be read; owners written so far are kept
+     * @throws IllegalArgumentException if CSV input lacks one of the owner columns
+     */
+    public ImportReport importData(Reader input, ImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        OwnerSource source = format == ImportFormat.CSV ? new CsvOwnerSource(input) : new NdjsonOwnerSource(input);
+        List<ImportedOwner> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (ImportedOwner owner = source.next(); owner != null; owner = source.next()) {
+            String error = owner.error != null ? owner.error : validate(owner);
+            if (error != null) {
+                report.rejected(owner.line, error);
+                continue;
+            }
+            chunk.add(owner);
+            if (chunk.size() == CHUNK_SIZE) {
+                write(chunk, report);
+                chunk.clear();
+            }
+        }
+        write(chunk, report);
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        logger.info("Import finished: {}", report);
+        return report;
+    }
+
+    private String validate(ImportedOwner imported) {
+        String error = firstViolation(this.validator.validate(imported.owner));
+        if (error != null) {
+            return error;
+        }
+        for (ImportedOwner.ImportedPet pet : imported.pets) {
+            Errors errors = new BeanPropertyBindingResult(pet.pet, "pet");
+            this.petValidator.validate(pet.pet, errors);
+            if (errors.hasFieldErrors()) {
+                FieldError field = errors.getFieldError();
+                return "pet " + pet.pet.getName() + ": " + field.getField() + " " + field.getDefaultMessage();
+            }
+            for (Visit visit : pet.visits) {
+                error = firstViolation(this.validator.validate(visit));
+                if (error != null) {
+                    return "visit of pet " + pet.pet.getName() + ": " + error;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <T> String firstViolation(Set<ConstraintViolation<T>> violations) {
+        if (violations.isEmpty()) {
+            return null;
+        }
+        ConstraintViolation<T> violation = violations.iterator().next();
+        return violation.getPropertyPath() + " " + violation.getMessage();
+    }
+
+    private void write(List<ImportedOwner> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            save(chunk);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not write {} owners starting on line {}, writing them one by one", chunk.size(),
+                chunk.get(0).line, ex);
+            for (ImportedOwner imported : chunk) {
+                resetIds(imported);
+                try {
+                    save(Collections.singletonList(imported));
+                } catch (RuntimeException rowEx) {
+                    report.rejected(imported.line,
+                        "not saved: " + NestedExceptionUtils.getMostSpecificCause(rowEx).getMessage());
+                    continue;
+                }
+                imported(imported, report);
+            }
+            return;
+        }
+        for (ImportedOwner imported : chunk) {
+            imported(imported, report);
+        }
+    }
+
+    private void save(List<ImportedOwner> owners) {
+        this.transactions.execute(status -> {
+            List<Visit> visits = new ArrayList<>();
+            for (ImportedOwner imported : owners) {
+                // cascades to the pets, which get their ids here
+                this.owners.save(imported.owner);
+                for (ImportedOwner.ImportedPet pet : imported.pets) {
+                    for (Visit visit : pet.visits) {
+                        visit.setPetId(pet.pet.getId());
+                        visits.add(visit);
+                    }
+                }
+            }
+            this.visits.saveAll(visits);
+            this.entityManager.flush();
+            this.entityManager.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Forget the ids assigned by a rolled back transaction, so that the entities are inserted again.
+     */
+    private static void resetIds(ImportedOwner imported) {
+        imported.owner.setId(null);
+        for (ImportedOwner.ImportedPet pet : imported.pets) {
+            pet.pet.setId(null);
+            for (Visit visit : pet.visits) {
+                visit.setId(null);
+            }
+        }
+    }
+
+    private void imported(ImportedOwner imported, ImportReport report) {
+        report.imported(imported);
+        this.searchIndex.updateOwner(imported.owner);
+        for (ImportedOwner.ImportedPet pet : imported.pets) {
+            this.searchIndex.updatePet(pet.pet);
+        }
+    }
+
+    private Pet newPet(ImportedOwner owner, String name, String birthDate, String type) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setBirthDate(parseDate(owner, "birth date", birthDate));
+        if (StringUtils.hasText(type)) {
+            PetType petType = this.petTypes.findByName(type.trim());
+            if (petType == null) {
+                reject(owner, "unknown pet type " + type);
+            }
+            pet.setType(petType);
+        }
+        if (StringUtils.hasLength(name) && owner.owner.getPet(name) != null) {
+            reject(owner, "duplicate pet " + name);
+        }
+        return pet;
+    }
+
+    private Visit newVisit(ImportedOwner owner, String date, String description) {
+        Visit visit = new Visit();
+        if (StringUtils.hasText(date)) {
+            visit.setDate(parseDate(owner, "visit date", date));
+        }
+        visit.setDescription(description);
+        return visit;
+    }
+
+    private static Date parseDate(ImportedOwner owner, String what, String text) {
+        if (!StringUtils.hasText(text)) {
+            return null;
+        }
+        try {
+            return Date.from(LocalDate.parse(text.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException ex) {
+            reject(owner, "invalid " + what + " " + text);
+            return null;
+        }
+    }
+
+    private static void reject(ImportedOwner owner, String error) {
+        if (owner.error == null) {
+            owner.error = error;
+        }
+    }
+
+    private interface OwnerSource {
+
+        /**
+         * @return the next owner, or <code>null</code> at the end of the input
+         */
+        ImportedOwner next() throws IOException;
+    }
+
+    /**
+     * Reads owners from CSV rows, grouping consecutive rows of the same owner and pet.
+     */
+    private final class CsvOwnerSource implements OwnerSource {
+
+        private final CsvReader csv;
+
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private List<String> row;
+
+        CsvOwnerSource(Reader input) throws IOException {
+            this.csv = new CsvReader(input);
+            List<String> header = this.csv.next();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                this.columns.put(header.get(i).trim(), i);
+            }
+            for (String required : new String[] { "firstName", "lastName", "address", "city", "telephone" }) {
+                if (!this.columns.containsKey(required)) {
+                    throw new IllegalArgumentException("Missing CSV column " + required);
+                }
+            }
+            this.row = this.csv.next();
+        }
+
+        @Override
+        public ImportedOwner next() throws IOException {
+            if (this.row == null) {
+                return null;
+            }
+            ImportedOwner owner = new ImportedOwner(this.csv.getRecordLine());
+            owner.owner.setFirstName(field("firstName"));
+            owner.owner.setLastName(field("lastName"));
+            owner.owner.setAddress(field("address"));
+            owner.owner.setCity(field("city"));
+            owner.owner.setTelephone(field("telephone"));
+            String key = ownerKey();
+            ImportedOwner.ImportedPet pet = null;
+            do {
+                String petName = field("petName");
+                if (StringUtils.hasText(petName) && (pet == null || !petName.equals(pet.pet.getName()))) {
+                    pet = owner.addPet(newPet(owner, petName, field("petBirthDate"), field("petType")));
+                }
+                if (StringUtils.hasText(field("visitDate")) || StringUtils.hasText(field("visitDescription"))) {
+                    if (pet == null) {
+                        reject(owner, "visit without pet on line " + this.csv.getRecordLine());
+                    } else {
+                        pet.visits.add(newVisit(owner, field("visitDate"), field("visitDescription")));
+                    }
+                }
+                this.row = this.csv.next();
+            } while (this.row != null && key.equals(ownerKey()));
+            return owner;
+        }
+
+        private String ownerKey() {
+            return field("firstName") + '\u0000' + field("lastName") + '\u0000' + field("telephone");
+        }
+
+        private String field(String column) {
+            Integer index = this.columns.get(column);
+            return index == null || index >= this.row.size() ? "" : this.row.get(index).trim();
+        }
+    }
+
+    /**
+     * Reads one owner per line of JSON.
+     */
+    private final class NdjsonOwnerSource implements OwnerSource {
+
+        private final BufferedReader lines;
+
+        private long line;
+
+        NdjsonOwnerSource(Reader input) {
+            this.lines = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        }
+
+        @Override
+        public ImportedOwner next() throws IOException {
+            String text;
+            do {
+                text = this.lines.readLine();
+                this.line++;
+            } while (text != null && text.trim().isEmpty());
+            if (text == null) {
+                return null;
+            }
+            ImportedOwner owner = new ImportedOwner(this.line);
+            JsonNode json;
+            try {
+                json = mapper.readTree(text);
+            } catch (JsonProcessingException ex) {
+                owner.error = "malformed JSON: " + ex.getOriginalMessage();
+                return owner;
+            }
+            owner.owner.setFirstName(text(json, "firstName"));
+            owner.owner.setLastName(text(json, "lastName"));
+            owner.owner.setAddress(text(json, "address"));
+            owner.owner.setCity(text(json, "city"));
+            owner.owner.setTelephone(text(json, "telephone"));
+            for (JsonNode petJson : json.path("pets")) {
+                ImportedOwner.ImportedPet pet = owner.addPet(newPet(owner, text(petJson, "name"),
+                    text(petJson, "birthDate"), text(petJson, "type")));
+                for (JsonNode visitJson : petJson.path("visits")) {
+                    pet.visits.add(newVisit(owner, text(visitJson, "date"), text(visitJson, "description")));
+                }
+            }
+            return owner;
+        }
+
+        private String text(JsonNode json, String field) {
+            JsonNode value = json.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+}
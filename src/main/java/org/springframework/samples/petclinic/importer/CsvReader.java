@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming reader of RFC 4180 CSV: comma separated fields, optionally enclosed in double quotes, with
+ * doubled quotes inside quoted fields. Quoted fields may span lines.
+ */
+final class CsvReader {
+
+    private final Reader reader;
+
+    private long line = 1;
+
+    private long recordLine;
+
+    CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the fields of the next record, or <code>null</code> at the end of the input
+     */
+    List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        this.recordLine = this.line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + this.recordLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return the line on which the last record returned by {@link #next()} started
+     */
+    long getRecordLine() {
+        return this.recordLine;
+    }
+
+    private int read() throws IOException {
+        int c = this.reader.read();
+        if (c == '\n') {
+            this.line++;
+        }
+        return c;
+    }
+
+}
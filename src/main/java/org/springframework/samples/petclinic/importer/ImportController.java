@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Bulk import over HTTP: the request body is read as a stream, so files larger than the memory of the application
+ * can be imported.
+ * <p>
+ * For example: <code>curl -H 'Content-Type: text/csv' --data-binary @owners.csv http://localhost:8080/api/import</code>
+ * </p>
+ */
+@RestController
+class ImportController {
+
+    static final String CSV = "text/csv";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final ClinicImporter importer;
+
+    public ImportController(ClinicImporter importer) {
+        this.importer = importer;
+    }
+
+    @PostMapping(path = "/api/import", consumes = { CSV, NDJSON })
+    public ImportReport importData(HttpServletRequest request) throws IOException {
+        // media types compare ignoring case and parameters such as the charset
+        ImportFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(
+            MediaType.parseMediaType(CSV)) ? ImportFormat.CSV : ImportFormat.NDJSON;
+        try {
+            return this.importer.importData(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+}
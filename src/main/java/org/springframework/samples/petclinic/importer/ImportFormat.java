@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+/**
+ * Input formats understood by {@link ClinicImporter}.
+ */
+public enum ImportFormat {
+
+    /**
+     * Comma separated values with a header row naming the columns <code>firstName, lastName, address, city,
+     * telephone, petName, petBirthDate, petType, visitDate, visitDescription</code>. Each row holds an owner and
+     * optionally one pet and one visit; consecutive rows of the same owner (same names and telephone) and pet name
+     * add pets and visits to it.
+     */
+    CSV,
+
+    /**
+     * Newline delimited JSON, one owner per line:
+     * <code>{"firstName":…, "lastName":…, "address":…, "city":…, "telephone":…, "pets":[{"name":…,
+     * "birthDate":"2010-09-07", "type":"cat", "visits":[{"date":"2013-01-01", "description":…}]}]}</code>.
+     */
+    NDJSON;
+
+    /**
+     * @param fileName a file name or media type
+     * @return the format matching its extension or subtype, CSV unless it ends with <code>json</code>
+     */
+    public static ImportFormat forName(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith("json") ? NDJSON : CSV;
+    }
+
+}
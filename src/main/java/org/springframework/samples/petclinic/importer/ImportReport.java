@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an import: what was written, how fast, and which input lines were rejected.
+ */
+public class ImportReport {
+
+    /**
+     * Only the first rejected lines are reported in detail; the others are only counted.
+     */
+    static final int MAX_ERRORS = 1000;
+
+    private int owners;
+
+    private int pets;
+
+    private int visits;
+
+    private int rejected;
+
+    private long elapsedMillis;
+
+    private final List<RowError> errors = new ArrayList<>();
+
+    void imported(ImportedOwner owner) {
+        this.owners++;
+        for (ImportedOwner.ImportedPet pet : owner.pets) {
+            this.pets++;
+            this.visits += pet.visits.size();
+        }
+    }
+
+    void rejected(long line, String message) {
+        this.rejected++;
+        if (this.errors.size() < MAX_ERRORS) {
+            this.errors.add(new RowError(line, message));
+        }
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getOwners() {
+        return this.owners;
+    }
+
+    public int getPets() {
+        return this.pets;
+    }
+
+    public int getVisits() {
+        return this.visits;
+    }
+
+    /**
+     * @return the number of owners not imported, each with all its pets and visits
+     */
+    public int getRejected() {
+        return this.rejected;
+    }
+
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    /**
+     * @return owners, pets and visits written per second
+     */
+    public long getRecordsPerSecond() {
+        return this.elapsedMillis == 0 ? 0 : (this.owners + this.pets + this.visits) * 1000L / this.elapsedMillis;
+    }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(this.errors);
+    }
+
+    @Override
+    public String toString() {
+        return this.owners + " owners, " + this.pets + " pets and " + this.visits + " visits imported in "
+            + this.elapsedMillis + " ms (" + getRecordsPerSecond() + " records/s), " + this.rejected + " rejected";
+    }
+
+    public static class RowError {
+
+        private final long line;
+
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return this.line;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the file given by <code>petclinic.import.file</code> at startup. The format is taken from the file name:
+ * NDJSON for <code>.json</code>/<code>.ndjson</code> files, CSV otherwise.
+ * <p>
+ * For example: <code>./mvnw spring-boot:run -Dspring-boot.run.arguments=--petclinic.import.file=owners.csv</code>
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "petclinic.import", name = "file")
+class ImportRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportRunner.class);
+
+    private final ClinicImporter importer;
+
+    private final Path file;
+
+    ImportRunner(ClinicImporter importer, @Value("${petclinic.import.file}") String file) {
+        this.importer = importer;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        ImportFormat format = ImportFormat.forName(this.file.getFileName().toString());
+        logger.info("Importing {} as {}", this.file, format);
+        ImportReport report;
+        try (Reader input = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+            report = this.importer.importData(input, format);
+        }
+        for (ImportReport.RowError error : report.getErrors()) {
+            logger.warn("{} line {}: {}", this.file, error.getLine(), error.getMessage());
+        }
+    }
+
+}
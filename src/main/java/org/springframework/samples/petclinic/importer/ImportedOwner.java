@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * One owner read from an import file, with its pets and their visits, or the reason it could not be read.
+ */
+final class ImportedOwner {
+
+    final long line;
+
+    final Owner owner = new Owner();
+
+    final List<ImportedPet> pets = new ArrayList<>();
+
+    String error;
+
+    ImportedOwner(long line) {
+        this.line = line;
+    }
+
+    ImportedPet addPet(Pet pet) {
+        ImportedPet imported = new ImportedPet(pet);
+        this.owner.addPet(pet);
+        this.pets.add(imported);
+        return imported;
+    }
+
+    static final class ImportedPet {
+
+        final Pet pet;
+
+        final List<Visit> visits = new ArrayList<>();
+
+        ImportedPet(Pet pet) {
+            this.pet = pet;
+        }
+    }
+
+}
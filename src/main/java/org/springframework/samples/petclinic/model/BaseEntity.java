@@ -18,13 +18,19 @@ package org.springframework.samples.petclinic.model;
 import java.io.Serializable;
 
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects
  * needing this property.
+ * <p>
+ * Ids come from one sequence per entity (<code>owner_seq</code>, <code>pet_seq</code>, ...; a single-row table on
+ * MySQL) through Hibernate's pooled optimizer, which reserves 50 ids per round trip. Unlike identity columns, this
+ * lets Hibernate batch inserts.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -32,7 +38,14 @@ import javax.persistence.MappedSuperclass;
 @MappedSuperclass
 public class BaseEntity implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled-sequence")
+    @GenericGenerator(name = "pooled-sequence", strategy = "enhanced-sequence", parameters = {
+        @Parameter(name = "prefer_sequence_per_entity", value = "true"),
+        @Parameter(name = "sequence_per_entity_suffix", value = "_seq"),
+        @Parameter(name = "optimizer", value = "pooled"),
+        @Parameter(name = "initial_value", value = "100"),
+        @Parameter(name = "increment_size", value = "50")
+    })
     private Integer id;
 
     public Integer getId() {
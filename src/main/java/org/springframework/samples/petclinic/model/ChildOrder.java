@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Order of the children of an entity in a {@link java.util.SortedSet}: by a property, then by identity, so that
+ * distinct children with the same property value are all kept. The id takes no part, as it is assigned while the child
+ * is in the set. Subclasses need a public no-argument constructor, as Hibernate creates them for
+ * {@link org.hibernate.annotations.SortComparator}.
+ */
+public abstract class ChildOrder<T> implements Comparator<T>, Serializable {
+
+    @Override
+    public final int compare(T left, T right) {
+        if (left == right) {
+            return 0;
+        }
+        int order = compareProperty(left, right);
+        return order != 0 ? order : Integer.compare(System.identityHashCode(left), System.identityHashCode(right));
+    }
+
+    protected abstract int compareProperty(T left, T right);
+
+}
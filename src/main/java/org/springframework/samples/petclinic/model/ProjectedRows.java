@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Helpers to merge the rows of a constructor projection over a to-many join, one row per parent and child, back into
+ * one summary per parent.
+ */
+public final class ProjectedRows {
+
+    private ProjectedRows() {
+    }
+
+    /**
+     * Merge the given rows into one summary per key.
+     * @param rows the rows, with the children of each parent in the order they should be listed
+     * @param key the key of the parent of a row
+     * @param merge creates the summary from all rows of one parent
+     * @return the summaries, in the order in which their parents first appear
+     */
+    public static <R, S> List<S> group(List<R> rows, Function<R, ?> key, Function<List<R>, S> merge) {
+        Map<Object, List<R>> byKey = new LinkedHashMap<>();
+        for (R row : rows) {
+            byKey.computeIfAbsent(key.apply(row), k -> new ArrayList<>()).add(row);
+        }
+        List<S> summaries = new ArrayList<>(byKey.size());
+        for (List<R> parentRows : byKey.values()) {
+            summaries.add(merge.apply(parentRows));
+        }
+        return summaries;
+    }
+
+    /**
+     * Merge the given rows as they are read, keeping only the rows of the current parent in memory.
+     * @param rows the rows, with all rows of a parent next to each other
+     * @param key the key of the parent of a row
+     * @param merge creates the summary from all rows of one parent
+     * @param action receives one summary per parent, in row order
+     */
+    public static <R, S> void forEachGrouped(Iterator<R> rows, Function<R, ?> key, Function<List<R>, S> merge,
+                                             Consumer<S> action) {
+        List<R> parentRows = new ArrayList<>();
+        Object current = null;
+        while (rows.hasNext()) {
+            R row = rows.next();
+            Object rowKey = key.apply(row);
+            if (!parentRows.isEmpty() && !current.equals(rowKey)) {
+                action.accept(merge.apply(parentRows));
+                parentRows = new ArrayList<>();
+            }
+            current = rowKey;
+            parentRows.add(row);
+        }
+        if (!parentRows.isEmpty()) {
+            action.accept(merge.apply(parentRows));
+        }
+    }
+
+    /**
+     * Concatenate the children of the given rows.
+     * @param rows the rows of one parent
+     * @param children the children of a row, empty for a parent without children
+     * @return the children of all rows, unmodifiable
+     */
+    public static <R, C> List<C> children(List<R> rows, Function<R, List<C>> children) {
+        List<C> all = new ArrayList<>(rows.size());
+        for (R row : rows) {
+            all.addAll(children.apply(row));
+        }
+        return Collections.unmodifiableList(all);
+    }
+
+}
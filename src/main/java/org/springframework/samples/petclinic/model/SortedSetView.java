@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.function.Supplier;
+
+/**
+ * Read-only list view of the sorted children of an entity. It reads through to the set the entity currently holds,
+ * including a set loaded or replaced by the persistence provider, so it is created once and never goes stale.
+ * Iteration walks the set; positional access walks it up to the index.
+ */
+public final class SortedSetView<E> extends AbstractList<E> {
+
+    private final Supplier<SortedSet<E>> set;
+
+    /**
+     * @param set returns the current set of the entity
+     */
+    public SortedSetView(Supplier<SortedSet<E>> set) {
+        this.set = set;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index >= 0) {
+            int position = 0;
+            for (E element : this.set.get()) {
+                if (position++ == index) {
+                    return element;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableSet(this.set.get()).iterator();
+    }
+
+    @Override
+    public int size() {
+        return this.set.get().size();
+    }
+
+}
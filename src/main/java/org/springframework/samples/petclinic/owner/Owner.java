@@ -15,11 +15,10 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -28,11 +27,13 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.SortComparator;
 import org.springframework.core.style.ToStringCreator;
+import org.springframework.samples.petclinic.model.ChildOrder;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.model.SortedSetView;
 
 /**
  * Simple JavaBean domain object representing an owner.
@@ -45,12 +46,15 @@ import org.springframework.samples.petclinic.model.Person;
 @Entity
 @Table(name = "owners")
 public class Owner extends Person {
+
     @Column(name = "address")
     @NotEmpty
+    @Size(max = 255)
     private String address;
 
     @Column(name = "city")
     @NotEmpty
+    @Size(max = 80)
     private String city;
 
     @Column(name = "telephone")
@@ -58,8 +62,14 @@ public class Owner extends Person {
     @Digits(fraction = 0, integer = 10)
     private String telephone;
 
+    /**
+     * Sorted by name when loaded and when added; {@link Pet#setName(String)} moves a renamed pet.
+     */
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
-    private Set<Pet> pets;
+    @SortComparator(PetsByName.class)
+    private SortedSet<Pet> pets;
+
+    private transient List<Pet> petsView;
 
     public String getAddress() {
         return this.address;
@@ -85,22 +95,25 @@ public class Owner extends Person {
         this.telephone = telephone;
     }
 
-    protected Set<Pet> getPetsInternal() {
+    protected SortedSet<Pet> getPetsInternal() {
         if (this.pets == null) {
-            this.pets = new HashSet<>();
+            this.pets = new TreeSet<>(new PetsByName());
         }
         return this.pets;
     }
 
-    protected void setPetsInternal(Set<Pet> pets) {
+    protected void setPetsInternal(SortedSet<Pet> pets) {
         this.pets = pets;
     }
 
+    /**
+     * @return read-only view of the pets, sorted by name
+     */
     public List<Pet> getPets() {
-        List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-        PropertyComparator.sort(sortedPets,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedPets);
+        if (this.petsView == null) {
+            this.petsView = new SortedSetView<>(this::getPetsInternal);
+        }
+        return this.petsView;
     }
 
     public void addPet(Pet pet) {
@@ -149,4 +162,17 @@ public class Owner extends Person {
                 .append("firstName", this.getFirstName()).append("address", this.address)
                 .append("city", this.city).append("telephone", this.telephone).toString();
     }
+
+    /**
+     * Pets by name, ignoring case.
+     */
+    public static final class PetsByName extends ChildOrder<Pet> {
+
+        private static final Comparator<String> NAMES = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+        @Override
+        protected int compareProperty(Pet left, Pet right) {
+            return NAMES.compare(left.getName(), right.getName());
+        }
+    }
 }
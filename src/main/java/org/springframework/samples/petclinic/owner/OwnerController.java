@@ -15,6 +15,14 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -23,10 +31,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,11 +51,21 @@ import java.util.Map;
 class OwnerController {
 
     private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
+    private static final int OWNERS_PAGE_SIZE = 20;
+    private static final int LATEST_VISITS = 5;
+    private static final int SEARCH_RESULTS = 50;
     private final OwnerRepository owners;
+    private final VisitRepository visits;
+    private final OwnerSearchIndex searchIndex;
+    private final ObjectProvider<CacheManager> cacheManager;
 
 
-    public OwnerController(OwnerRepository clinicService) {
+    public OwnerController(OwnerRepository clinicService, VisitRepository visits, OwnerSearchIndex searchIndex,
+                           ObjectProvider<CacheManager> cacheManager) {
         this.owners = clinicService;
+        this.visits = visits;
+        this.searchIndex = searchIndex;
+        this.cacheManager = cacheManager;
     }
 
     @InitBinder
@@ -64,6 +86,7 @@ class OwnerController {
             return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
         } else {
             this.owners.save(owner);
+            this.searchIndex.updateOwner(owner);
             return "redirect:/owners/" + owner.getId();
         }
     }
@@ -75,30 +98,99 @@ class OwnerController {
     }
 
     @GetMapping("/owners")
-    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model,
+                                  @RequestParam(value = "after", required = false) String after,
+                                  @RequestParam(value = "before", required = false) String before) {
 
         // allow parameterless GET request for /owners to return all records
         if (owner.getLastName() == null) {
             owner.setLastName(""); // empty string signifies broadest possible search
         }
 
-        // find owners by last name
-        Collection<Owner> results = this.owners.findByLastName(owner.getLastName());
-        if (results.isEmpty()) {
+        // find one page of owners by last name, keyset-paginated on (last name, first name, id)
+        OwnerCursor afterCursor = OwnerCursor.decode(after);
+        OwnerCursor beforeCursor = OwnerCursor.decode(before);
+        boolean firstPage = afterCursor == null && beforeCursor == null;
+        // fetch one extra row to find out whether there is a further page
+        Pageable window = PageRequest.of(0, OWNERS_PAGE_SIZE + 1);
+        List<Integer> ids;
+        boolean hasNext;
+        boolean hasPrevious;
+        if (beforeCursor != null) {
+            ids = new ArrayList<>(this.owners.findIdPageByLastNameBefore(owner.getLastName(),
+                beforeCursor.getLastName(), beforeCursor.getFirstName(), beforeCursor.getId(), window));
+            hasPrevious = ids.size() > OWNERS_PAGE_SIZE;
+            if (hasPrevious) {
+                ids.remove(OWNERS_PAGE_SIZE);
+            }
+            Collections.reverse(ids);
+            hasNext = true;
+        } else {
+            ids = firstPage
+                ? this.owners.findIdPageByLastName(owner.getLastName(), window)
+                : this.owners.findIdPageByLastNameAfter(owner.getLastName(),
+                    afterCursor.getLastName(), afterCursor.getFirstName(), afterCursor.getId(), window);
+            hasNext = ids.size() > OWNERS_PAGE_SIZE;
+            if (hasNext) {
+                ids = ids.subList(0, OWNERS_PAGE_SIZE);
+            }
+            hasPrevious = !firstPage;
+        }
+        List<OwnerSummary> results = loadOwners(ids);
+
+        if (results.isEmpty() && firstPage) {
             // no owners found
             result.rejectValue("lastName", "notFound", "not found");
             return "owners/findOwners";
-        } else if (results.size() == 1) {
+        } else if (results.size() == 1 && firstPage && !hasNext) {
             // 1 owner found
-            owner = results.iterator().next();
-            return "redirect:/owners/" + owner.getId();
+            return "redirect:/owners/" + results.get(0).getId();
         } else {
             // multiple owners found
             model.put("selections", results);
+            if (hasNext && !results.isEmpty()) {
+                model.put("nextCursor", OwnerCursor.of(results.get(results.size() - 1)).encode());
+            }
+            if (hasPrevious && !results.isEmpty()) {
+                model.put("previousCursor", OwnerCursor.of(results.get(0)).encode());
+            }
             return "owners/ownersList";
         }
     }
 
+    /**
+     * Ranked search over owner names, pet names, telephone numbers and cities, answered from the in-memory
+     * {@link OwnerSearchIndex}.
+     */
+    @GetMapping("/owners/search")
+    public String searchOwners(@RequestParam(value = "q", defaultValue = "") String query, Map<String, Object> model) {
+        model.put("query", query);
+        model.put("hits", this.searchIndex.search(query, SEARCH_RESULTS));
+        return "owners/searchResults";
+    }
+
+    /**
+     * Second step of the paged search: load read-only summaries of the owners of a page, with the names of their
+     * pets, in one query, keeping the order of the given ids.
+     */
+    private List<OwnerSummary> loadOwners(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, OwnerSummary> byId = new HashMap<>();
+        for (OwnerSummary owner : this.owners.findSummariesByIdIn(ids)) {
+            byId.put(owner.getId(), owner);
+        }
+        List<OwnerSummary> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            OwnerSummary owner = byId.get(id);
+            if (owner != null) {
+                results.add(owner);
+            }
+        }
+        return results;
+    }
+
     @GetMapping("/owners/{ownerId}/edit")
     public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
         Owner owner = this.owners.findById(ownerId);
@@ -113,12 +205,16 @@ class OwnerController {
         } else {
             owner.setId(ownerId);
             this.owners.save(owner);
+            this.searchIndex.updateOwner(owner);
             return "redirect:/owners/{ownerId}";
         }
     }
 
     /**
-     * Custom handler for displaying an owner.
+     * Custom handler for displaying an owner. Only the latest visits of each pet are loaded, in one query, and only
+     * for pets whose rendered fragment is not cached; the full history is paged by {@link VisitController}. A fragment
+     * evicted after the cache was checked is rendered after all, and the template loads the visits of its pet through
+     * <code>firstVisitPage</code>.
      *
      * @param ownerId the ID of the owner to display
      * @return a ModelMap with the model attributes for the view
@@ -126,8 +222,29 @@ class OwnerController {
     @GetMapping("/owners/{ownerId}")
     public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
         ModelAndView mav = new ModelAndView("owners/ownerDetails");
-        mav.addObject(this.owners.findById(ownerId));
+        Owner owner = this.owners.findById(ownerId);
+        mav.addObject(owner);
+        CacheManager cacheManager = this.cacheManager.getIfAvailable();
+        Cache fragments = cacheManager != null ? cacheManager.getCache("fragments") : null;
+        List<Integer> petIds = new ArrayList<>();
+        for (Pet pet : owner.getPets()) {
+            if (fragments == null || fragments.get("pet-" + pet.getId()) == null) {
+                petIds.add(pet.getId());
+            }
+        }
+        mav.addObject("latestVisits", this.visits.findFirstPagesByPetIds(petIds, LATEST_VISITS));
+        mav.addObject("firstVisitPage", new FirstVisitPage());
         return mav;
     }
 
+    /**
+     * Loads the latest visits of a pet left out of <code>latestVisits</code>.
+     */
+    private final class FirstVisitPage {
+
+        public Slice<Visit> of(int petId) {
+            return OwnerController.this.visits.findPageByPetId(petId, PageRequest.of(0, LATEST_VISITS));
+        }
+    }
+
 }
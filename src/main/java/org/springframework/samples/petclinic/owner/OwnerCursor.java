@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Position of an {@link Owner} in the owner search ordering (last name, first name, then id). Used as an opaque
+ * keyset cursor so that paging through owners never needs an <code>OFFSET</code>.
+ */
+final class OwnerCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private static final char NAME_SEPARATOR = '\n';
+
+    private final String lastName;
+
+    private final String firstName;
+
+    private final int id;
+
+    OwnerCursor(String lastName, String firstName, int id) {
+        this.lastName = lastName;
+        this.firstName = firstName == null ? "" : firstName;
+        this.id = id;
+    }
+
+    static OwnerCursor of(OwnerSummary owner) {
+        return new OwnerCursor(owner.getLastName(), owner.getFirstName(), owner.getId());
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.
+     * @param token the encoded cursor, may be <code>null</code>
+     * @return the cursor, or <code>null</code> if the token is empty or malformed
+     */
+    static OwnerCursor decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            int nameSeparator = decoded.lastIndexOf(NAME_SEPARATOR);
+            if (separator < 1 || nameSeparator < separator) {
+                return null;
+            }
+            int id = Integer.parseInt(decoded.substring(0, separator));
+            return new OwnerCursor(decoded.substring(separator + 1, nameSeparator),
+                decoded.substring(nameSeparator + 1), id);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    String encode() {
+        String raw = this.id + String.valueOf(SEPARATOR) + this.lastName + NAME_SEPARATOR + this.firstName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String getLastName() {
+        return this.lastName;
+    }
+
+    String getFirstName() {
+        return this.firstName;
+    }
+
+    int getId() {
+        return this.id;
+    }
+
+}
@@ -16,8 +16,17 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
@@ -45,18 +54,148 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
     Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
     /**
-     * Retrieve an {@link Owner} from the data store by id.
+     * Retrieve the ids of the first page of {@link Owner}s whose last name <i>starts</i> with the given name,
+     * ordered by last name, first name and id. The filter and the ordering are both served by the
+     * <code>owners_search</code> index on (last_name, first_name, id), so the database reads only one page of index
+     * entries instead of sorting all matches.
+     * @param lastName Value to search for
+     * @param pageable the page size; only the size is used, the sort order is fixed
+     * @return a List of matching {@link Owner} ids (or an empty List if none found)
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE :lastName% "
+        + "ORDER BY owner.lastName, owner.firstName, owner.id")
+    @Transactional(readOnly = true)
+    List<Integer> findIdPageByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+    /**
+     * Retrieve the ids of the page of {@link Owner}s whose last name <i>starts</i> with the given name and which
+     * sort strictly <i>after</i> the given (last name, first name, id) cursor, ordered by last name, first name and
+     * id.
+     * @param lastName Value to search for
+     * @param cursorLastName last name of the last owner on the previous page
+     * @param cursorFirstName first name of the last owner on the previous page
+     * @param cursorId id of the last owner on the previous page
+     * @param pageable the page size; only the size is used, the sort order is fixed
+     * @return a List of matching {@link Owner} ids (or an empty List if none found)
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE :lastName% "
+        + "AND (owner.lastName > :cursorLastName OR (owner.lastName = :cursorLastName "
+        + "AND (owner.firstName > :cursorFirstName OR (owner.firstName = :cursorFirstName AND owner.id > :cursorId)))) "
+        + "ORDER BY owner.lastName, owner.firstName, owner.id")
+    @Transactional(readOnly = true)
+    List<Integer> findIdPageByLastNameAfter(@Param("lastName") String lastName,
+                                            @Param("cursorLastName") String cursorLastName,
+                                            @Param("cursorFirstName") String cursorFirstName,
+                                            @Param("cursorId") Integer cursorId, Pageable pageable);
+
+    /**
+     * Retrieve the ids of the page of {@link Owner}s whose last name <i>starts</i> with the given name and which
+     * sort strictly <i>before</i> the given (last name, first name, id) cursor, in <i>descending</i> order.
+     * @param lastName Value to search for
+     * @param cursorLastName last name of the first owner on the next page
+     * @param cursorFirstName first name of the first owner on the next page
+     * @param cursorId id of the first owner on the next page
+     * @param pageable the page size; only the size is used, the sort order is fixed
+     * @return a List of matching {@link Owner} ids, nearest to the cursor first (or an empty List if none found)
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE :lastName% "
+        + "AND (owner.lastName < :cursorLastName OR (owner.lastName = :cursorLastName "
+        + "AND (owner.firstName < :cursorFirstName OR (owner.firstName = :cursorFirstName AND owner.id < :cursorId)))) "
+        + "ORDER BY owner.lastName DESC, owner.firstName DESC, owner.id DESC")
+    @Transactional(readOnly = true)
+    List<Integer> findIdPageByLastNameBefore(@Param("lastName") String lastName,
+                                             @Param("cursorLastName") String cursorLastName,
+                                             @Param("cursorFirstName") String cursorFirstName,
+                                             @Param("cursorId") Integer cursorId, Pageable pageable);
+
+    /**
+     * Retrieve the ids of the {@link Owner}s following the given id, in id order. Used to walk all owners in batches.
+     * @param afterId the last id of the previous batch, or 0 to start with the first owner
+     * @param pageable the batch size; only the size is used
+     * @return the next ids (or an empty List after the last owner)
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.id > :afterId ORDER BY owner.id")
+    @Transactional(readOnly = true)
+    List<Integer> findIdsAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    /**
+     * Retrieve the {@link Owner}s with the given ids together with their pets and pet types, in a single query. The
+     * entities are loaded read-only, without dirty-checking snapshots.
+     * @param ids the ids to load
+     * @return the matching {@link Owner}s, in no particular order
+     */
+    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type WHERE owner.id IN :ids")
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+    @Transactional(readOnly = true)
+    List<Owner> findAllWithPetsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve one {@link OwnerSummary} row per owner and pet for the owners with the given ids, owners without pets
+     * having a single row without pet name. Use {@link #findSummariesByIdIn(Collection)} to get one summary per owner.
+     * @param ids the ids to load
+     * @return the rows, ordered by owner id and pet name, ignoring case
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+        + "owner.lastName, owner.address, owner.city, owner.telephone, pet.name) "
+        + "FROM Owner owner left join owner.pets pet WHERE owner.id IN :ids ORDER BY owner.id, LOWER(pet.name)")
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+    @Transactional(readOnly = true)
+    List<OwnerSummary> findSummaryRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve read-only summaries of the {@link Owner}s with the given ids, with the names of their pets. Used as
+     * the second step of a paged search, after the page of ids has been limited in the database.
+     * @param ids the ids to load
+     * @return the matching summaries, in no particular order
+     */
+    default List<OwnerSummary> findSummariesByIdIn(Collection<Integer> ids) {
+        return OwnerSummary.group(findSummaryRowsByIdIn(ids));
+    }
+
+    /**
+     * Stream one {@link OwnerSummary} row per owner and pet for all owners whose last name <i>starts</i> with the
+     * given name. The stream must be consumed and closed inside a transaction; see
+     * {@link #forEachSummaryByLastName(String, Consumer)}.
+     * @param lastName Value to search for
+     * @return the rows, ordered by owner id and pet name, ignoring case
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSummary(owner.id, owner.firstName, "
+        + "owner.lastName, owner.address, owner.city, owner.telephone, pet.name) "
+        + "FROM Owner owner left join owner.pets pet WHERE owner.lastName LIKE :lastName% ORDER BY owner.id, LOWER(pet.name)")
+    @QueryHints({ @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500") })
+    Stream<OwnerSummary> streamSummaryRowsByLastName(@Param("lastName") String lastName);
+
+    /**
+     * Pass read-only summaries of all owners whose last name <i>starts</i> with the given name to the given action,
+     * one owner at a time as rows are read from the database, so that memory use does not grow with the number of
+     * owners. On MySQL this needs <code>useCursorFetch=true</code> in the URL, as in the <code>mysql</code> profile.
+     * @param lastName Value to search for
+     * @param action receives the summaries, ordered by owner id
+     */
+    @Transactional(readOnly = true)
+    default void forEachSummaryByLastName(String lastName, Consumer<OwnerSummary> action) {
+        try (Stream<OwnerSummary> rows = streamSummaryRowsByLastName(lastName)) {
+            OwnerSummary.forEachGrouped(rows.iterator(), action);
+        }
+    }
+
+    /**
+     * Retrieve an {@link Owner} from the data store by id. The owner with its pets and pet types is
+     * cached in the <code>owners</code> cache until the owner, one of its pets or a visit is saved.
      * @param id the id to search for
      * @return the {@link Owner} if found
      */
     @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
     @Transactional(readOnly = true)
+    @Cacheable("owners")
     Owner findById(@Param("id") Integer id);
 
     /**
      * Save an {@link Owner} to the data store, either inserting or updating it.
      * @param owner the {@link Owner} to save
      */
+    @CacheEvict(value = "owners", key = "#p0.id")
     void save(Owner owner);
 
 
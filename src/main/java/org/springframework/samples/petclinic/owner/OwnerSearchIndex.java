@@ -0,0 +1,414 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory full-text index of owners and their pets, for the front desk search. Every owner is indexed under the
+ * words of its first name, last name and city, the names of its pets, and every suffix of its telephone number; a
+ * query matches an owner when each query word is a prefix of one of the owner's terms, so "dav 608" finds the Davises
+ * whose number contains 608.
+ * <p>
+ * The index is built when the application is ready, in batches of owners, and kept up to date by the controllers
+ * through {@link #updateOwner(Owner)} and {@link #updatePet(Pet)}; searches never touch the database.
+ * </p>
+ * <p>
+ * A rebuild loads a new index aside while searches and updates keep using the current one. Updates made meanwhile are
+ * replayed on the new index before it replaces the current one, so none is lost.
+ * </p>
+ */
+@Component
+public class OwnerSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerSearchIndex.class);
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private static final int LAST_NAME_WEIGHT = 8;
+
+    private static final int FIRST_NAME_WEIGHT = 6;
+
+    private static final int PET_NAME_WEIGHT = 4;
+
+    private static final int TELEPHONE_WEIGHT = 4;
+
+    private static final int CITY_WEIGHT = 1;
+
+    private static final Comparator<Hit> BY_RANK = Comparator.comparingInt(Hit::getScore).reversed()
+        .thenComparing(Hit::getLastName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+        .thenComparing(Hit::getFirstName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+        .thenComparing(Hit::getId);
+
+    private final OwnerRepository owners;
+
+    private volatile Index index = new Index();
+
+    private final Object rebuildLock = new Object();
+
+    private final Object updateLock = new Object();
+
+    /**
+     * Updates made during a rebuild, to be replayed on the new index; <code>null</code> unless rebuilding. Guarded by
+     * {@link #updateLock}.
+     */
+    private List<Consumer<Index>> pendingUpdates;
+
+    public OwnerSearchIndex(OwnerRepository owners) {
+        this.owners = owners;
+    }
+
+    /**
+     * Rebuild the whole index from the data store. Runs once the application is ready, so that owners inserted by
+     * startup runners are included.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this.rebuildLock) {
+            synchronized (this.updateLock) {
+                this.pendingUpdates = new ArrayList<>();
+            }
+            try {
+                Index fresh = load();
+                synchronized (this.updateLock) {
+                    // newer than or as new as the loaded owners
+                    for (Consumer<Index> update : this.pendingUpdates) {
+                        update.accept(fresh);
+                    }
+                    this.index = fresh;
+                }
+            } finally {
+                synchronized (this.updateLock) {
+                    this.pendingUpdates = null;
+                }
+            }
+        }
+    }
+
+    private Index load() {
+        long start = System.nanoTime();
+        Index fresh = new Index();
+        int lastId = 0;
+        List<Integer> ids = this.owners.findIdsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+        while (!ids.isEmpty()) {
+            for (Owner owner : this.owners.findAllWithPetsByIdIn(ids)) {
+                Map<Integer, String> pets = new HashMap<>();
+                for (Pet pet : owner.getPets()) {
+                    pets.put(pet.getId(), pet.getName());
+                }
+                fresh.put(new Entry(owner, pets));
+            }
+            lastId = ids.get(ids.size() - 1);
+            ids = this.owners.findIdsAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+        }
+        logger.info("Indexed {} owners for search in {} ms", fresh.entries.size(),
+            (System.nanoTime() - start) / 1_000_000);
+        return fresh;
+    }
+
+    /**
+     * Index a new owner or the changed details of an existing one. The pets already indexed for the owner are kept.
+     * @param owner the saved owner
+     */
+    public void updateOwner(Owner owner) {
+        Entry details = new Entry(owner, Collections.<Integer, String>emptyMap());
+        update(index -> index.updateOwner(details));
+    }
+
+    /**
+     * Index a new pet or the new name of an existing one.
+     * @param pet the saved pet, with its owner
+     */
+    public void updatePet(Pet pet) {
+        if (pet.getOwner() == null || pet.getOwner().getId() == null) {
+            return;
+        }
+        int ownerId = pet.getOwner().getId();
+        Integer petId = pet.getId();
+        String name = pet.getName();
+        update(index -> index.updatePet(ownerId, petId, name));
+    }
+
+    private void update(Consumer<Index> update) {
+        synchronized (this.updateLock) {
+            update.accept(this.index);
+            if (this.pendingUpdates != null) {
+                this.pendingUpdates.add(update);
+            }
+        }
+    }
+
+    /**
+     * @param query words to look for; each must prefix a name, city or telephone digits of the owner or its pets
+     * @param limit the maximum number of hits
+     * @return the best matching owners, best first, or an empty list if the query has no words
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Index current = this.index;
+        Map<Integer, Integer> scores = null;
+        for (String word : words) {
+            Map<Integer, Integer> matches = current.match(word);
+            if (scores == null) {
+                scores = matches;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+                    Integer score = scores.get(match.getKey());
+                    if (score != null) {
+                        both.put(match.getKey(), score + match.getValue());
+                    }
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+            Entry entry = current.entries.get(score.getKey());
+            if (entry != null) {
+                hits.add(new Hit(entry, score.getValue()));
+            }
+        }
+        hits.sort(BY_RANK);
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Postings from term to owner id and field weight, plus the indexed owners. Writers are serialized by the
+     * update lock of the enclosing instance, or fill an index not published yet; readers only use the concurrent maps. An owner is added to the postings of its new terms
+     * before it is removed from those of terms it lost, so that a concurrent search matching it before and after the
+     * change finds it throughout.
+     */
+    private static final class Index {
+
+        private final ConcurrentNavigableMap<String, ConcurrentMap<Integer, Integer>> postings =
+            new ConcurrentSkipListMap<>();
+
+        private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(Entry entry) {
+            for (Map.Entry<String, Integer> term : entry.terms.entrySet()) {
+                this.postings.computeIfAbsent(term.getKey(), key -> new ConcurrentHashMap<>())
+                    .put(entry.id, term.getValue());
+            }
+            Entry previous = this.entries.put(entry.id, entry);
+            if (previous != null) {
+                for (String term : previous.terms.keySet()) {
+                    if (entry.terms.containsKey(term)) {
+                        continue;
+                    }
+                    ConcurrentMap<Integer, Integer> owners = this.postings.get(term);
+                    if (owners != null) {
+                        owners.remove(previous.id);
+                        if (owners.isEmpty()) {
+                            this.postings.remove(term, owners);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param details the new details of the owner; the pets already indexed for it are kept
+         */
+        void updateOwner(Entry details) {
+            Entry previous = this.entries.get(details.id);
+            put(previous != null ? details.withPets(previous.pets) : details);
+        }
+
+        void updatePet(int ownerId, Integer petId, String name) {
+            Entry previous = this.entries.get(ownerId);
+            if (previous == null) {
+                return;
+            }
+            Map<Integer, String> pets = new HashMap<>(previous.pets);
+            pets.put(petId, name);
+            put(previous.withPets(pets));
+        }
+
+        /**
+         * Score owners against one query word: the weight of the best matching field, doubled for a whole term.
+         */
+        Map<Integer, Integer> match(String word) {
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (Map.Entry<String, ConcurrentMap<Integer, Integer>> term
+                : this.postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+                int factor = term.getKey().length() == word.length() ? 2 : 1;
+                for (Map.Entry<Integer, Integer> owner : term.getValue().entrySet()) {
+                    scores.merge(owner.getKey(), owner.getValue() * factor, Math::max);
+                }
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * Indexed copy of an owner: what the search results show, and the terms it is indexed under.
+     */
+    private static final class Entry {
+
+        private final int id;
+
+        private final String firstName;
+
+        private final String lastName;
+
+        private final String address;
+
+        private final String city;
+
+        private final String telephone;
+
+        private final Map<Integer, String> pets;
+
+        private final Map<String, Integer> terms = new LinkedHashMap<>();
+
+        Entry(Owner owner, Map<Integer, String> pets) {
+            this(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(), owner.getCity(),
+                owner.getTelephone(), pets);
+        }
+
+        private Entry(int id, String firstName, String lastName, String address, String city, String telephone,
+                      Map<Integer, String> pets) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.address = address;
+            this.city = city;
+            this.telephone = telephone;
+            this.pets = Collections.unmodifiableMap(new HashMap<>(pets));
+            addTerms(lastName, LAST_NAME_WEIGHT);
+            addTerms(firstName, FIRST_NAME_WEIGHT);
+            for (String pet : this.pets.values()) {
+                addTerms(pet, PET_NAME_WEIGHT);
+            }
+            addTerms(city, CITY_WEIGHT);
+            if (telephone != null) {
+                // every suffix, so that any run of digits matches as a prefix
+                String digits = telephone.replaceAll("\\D", "");
+                for (int i = 0; i < digits.length(); i++) {
+                    this.terms.merge(digits.substring(i), TELEPHONE_WEIGHT, Math::max);
+                }
+            }
+        }
+
+        Entry withPets(Map<Integer, String> pets) {
+            return new Entry(this.id, this.firstName, this.lastName, this.address, this.city, this.telephone, pets);
+        }
+
+        private void addTerms(String text, int weight) {
+            for (String word : tokenize(text)) {
+                this.terms.merge(word, weight, Math::max);
+            }
+        }
+    }
+
+    /**
+     * One owner found by a search, with the names of its pets.
+     */
+    public static final class Hit {
+
+        private final Entry entry;
+
+        private final int score;
+
+        private List<String> pets;
+
+        Hit(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        public int getId() {
+            return this.entry.id;
+        }
+
+        public String getFirstName() {
+            return this.entry.firstName;
+        }
+
+        public String getLastName() {
+            return this.entry.lastName;
+        }
+
+        public String getAddress() {
+            return this.entry.address;
+        }
+
+        public String getCity() {
+            return this.entry.city;
+        }
+
+        public String getTelephone() {
+            return this.entry.telephone;
+        }
+
+        /**
+         * @return the names of the owner's pets, sorted
+         */
+        public List<String> getPets() {
+            if (this.pets == null) {
+                List<String> names = new ArrayList<>(this.entry.pets.values());
+                names.sort(Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                this.pets = Collections.unmodifiableList(names);
+            }
+            return this.pets;
+        }
+
+        public int getScore() {
+            return this.score;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.samples.petclinic.model.ProjectedRows;
+
+/**
+ * Immutable read-only view of an {@link Owner} with the names of its pets, as shown in the owner list. Loaded with a
+ * constructor projection, so no managed entities or dirty-checking snapshots are created.
+ */
+public final class OwnerSummary {
+
+    private final Integer id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String address;
+
+    private final String city;
+
+    private final String telephone;
+
+    private final List<String> pets;
+
+    /**
+     * Create a summary from one projected row: an owner with at most one pet name.
+     */
+    public OwnerSummary(Integer id, String firstName, String lastName, String address, String city, String telephone,
+                        String petName) {
+        this(id, firstName, lastName, address, city, telephone,
+            petName == null ? Collections.<String>emptyList() : Collections.singletonList(petName));
+    }
+
+    private OwnerSummary(Integer id, String firstName, String lastName, String address, String city,
+                         String telephone, List<String> pets) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.city = city;
+        this.telephone = telephone;
+        this.pets = pets;
+    }
+
+    /**
+     * Merge projected rows, one per owner and pet, into one summary per owner.
+     * @param rows the rows, with the pets of each owner in the order they should be listed
+     * @return the summaries, in the order in which their owners first appear
+     */
+    static List<OwnerSummary> group(List<OwnerSummary> rows) {
+        return ProjectedRows.group(rows, OwnerSummary::getId, OwnerSummary::merge);
+    }
+
+    /**
+     * Merge projected rows as they are read, keeping only the rows of the current owner in memory.
+     * @param rows the rows, with all rows of an owner next to each other
+     * @param action receives one summary per owner, in row order
+     */
+    static void forEachGrouped(Iterator<OwnerSummary> rows, Consumer<OwnerSummary> action) {
+        ProjectedRows.forEachGrouped(rows, OwnerSummary::getId, OwnerSummary::merge, action);
+    }
+
+    private static OwnerSummary merge(List<OwnerSummary> ownerRows) {
+        OwnerSummary first = ownerRows.get(0);
+        return new OwnerSummary(first.id, first.firstName, first.lastName, first.address, first.city,
+            first.telephone, ProjectedRows.children(ownerRows, row -> row.pets));
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getAddress() {
+        return this.address;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public String getTelephone() {
+        return this.telephone;
+    }
+
+    /**
+     * @return the names of the owner's pets, sorted
+     */
+    public List<String> getPets() {
+        return this.pets;
+    }
+
+}
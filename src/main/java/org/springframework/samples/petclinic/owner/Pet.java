@@ -15,13 +15,11 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -34,10 +32,12 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.SortComparator;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.samples.petclinic.model.ChildOrder;
 import org.springframework.samples.petclinic.model.NamedEntity;
+import org.springframework.samples.petclinic.model.SortedSetView;
 import org.springframework.samples.petclinic.visit.Visit;
 
 /**
@@ -64,13 +64,39 @@ public class Pet extends NamedEntity {
     @JoinColumn(name = "owner_id")
     private Owner owner;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId", fetch = FetchType.EAGER)
-    private Set<Visit> visits = new LinkedHashSet<>();
+    /**
+     * The complete visit history, loaded on first access only. Pages that show visits query the latest ones through
+     * {@link org.springframework.samples.petclinic.visit.VisitRepository#findPageByPetId} instead. Sorted by date
+     * when loaded and when added; a visit is not moved if its date changes afterwards.
+     */
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId", fetch = FetchType.LAZY)
+    @SortComparator(VisitsByDateDescending.class)
+    private SortedSet<Visit> visits = new TreeSet<>(new VisitsByDateDescending());
+
+    private transient List<Visit> visitsView;
 
     public void setBirthDate(Date birthDate) {
         this.birthDate = birthDate;
     }
 
+    /**
+     * Renaming keeps the pets of the owner sorted: the pet leaves them under its old name and rejoins them under the
+     * new one.
+     */
+    @Override
+    public void setName(String name) {
+        SortedSet<Pet> siblings = null;
+        if (this.owner != null && Hibernate.isInitialized(this.owner)
+            && Hibernate.isInitialized(this.owner.getPetsInternal())) {
+            siblings = this.owner.getPetsInternal();
+        }
+        boolean moved = siblings != null && siblings.remove(this);
+        super.setName(name);
+        if (moved) {
+            siblings.add(this);
+        }
+    }
+
     public Date getBirthDate() {
         return this.birthDate;
     }
@@ -91,22 +117,25 @@ public class Pet extends NamedEntity {
         this.owner = owner;
     }
 
-    protected Set<Visit> getVisitsInternal() {
+    protected SortedSet<Visit> getVisitsInternal() {
         if (this.visits == null) {
-            this.visits = new HashSet<>();
+            this.visits = new TreeSet<>(new VisitsByDateDescending());
         }
         return this.visits;
     }
 
-    protected void setVisitsInternal(Set<Visit> visits) {
+    protected void setVisitsInternal(SortedSet<Visit> visits) {
         this.visits = visits;
     }
 
+    /**
+     * @return read-only view of the visits, most recent first
+     */
     public List<Visit> getVisits() {
-        List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-        PropertyComparator.sort(sortedVisits,
-                new MutableSortDefinition("date", false, false));
-        return Collections.unmodifiableList(sortedVisits);
+        if (this.visitsView == null) {
+            this.visitsView = new SortedSetView<>(this::getVisitsInternal);
+        }
+        return this.visitsView;
     }
 
     public void addVisit(Visit visit) {
@@ -114,4 +143,17 @@ public class Pet extends NamedEntity {
         visit.setPetId(this.getId());
     }
 
+    /**
+     * Visits by date, most recent first.
+     */
+    public static final class VisitsByDateDescending extends ChildOrder<Visit> {
+
+        private static final Comparator<Date> DATES = Comparator.nullsLast(Comparator.<Date>naturalOrder());
+
+        @Override
+        protected int compareProperty(Visit left, Visit right) {
+            return DATES.compare(right.getDate(), left.getDate());
+        }
+    }
+
 }
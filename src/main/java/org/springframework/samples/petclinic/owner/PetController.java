@@ -37,15 +37,20 @@ class PetController {
     private static final String VIEWS_PETS_CREATE_OR_UPDATE_FORM = "pets/createOrUpdatePetForm";
     private final PetRepository pets;
     private final OwnerRepository owners;
+    private final PetTypeRegistry petTypes;
+    private final OwnerSearchIndex searchIndex;
 
-    public PetController(PetRepository pets, OwnerRepository owners) {
+    public PetController(PetRepository pets, OwnerRepository owners, PetTypeRegistry petTypes,
+                         OwnerSearchIndex searchIndex) {
         this.pets = pets;
         this.owners = owners;
+        this.petTypes = petTypes;
+        this.searchIndex = searchIndex;
     }
 
     @ModelAttribute("types")
     public Collection<PetType> populatePetTypes() {
-        return this.pets.findPetTypes();
+        return this.petTypes.findAll();
     }
 
     @ModelAttribute("owner")
@@ -82,6 +87,7 @@ class PetController {
             return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
         } else {
             this.pets.save(pet);
+            this.searchIndex.updatePet(pet);
             return "redirect:/owners/{ownerId}";
         }
     }
@@ -102,6 +108,7 @@ class PetController {
         } else {
             owner.addPet(pet);
             this.pets.save(pet);
+            this.searchIndex.updatePet(pet);
             return "redirect:/owners/{ownerId}";
         }
     }
@@ -17,7 +17,12 @@ package org.springframework.samples.petclinic.owner;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,6 +42,8 @@ public interface PetRepository extends Repository<Pet, Integer> {
      * @return a Collection of {@link PetType}s.
      */
     @Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "reference-queries") })
     @Transactional(readOnly = true)
     List<PetType> findPetTypes();
 
@@ -49,9 +56,12 @@ public interface PetRepository extends Repository<Pet, Integer> {
     Pet findById(Integer id);
 
     /**
-     * Save a {@link Pet} to the data store, either inserting or updating it.
+     * Save a {@link Pet} to the data store, either inserting or updating it. Evicts the cached owner of the pet.
      * @param pet the {@link Pet} to save
      */
+    @Caching(evict = {
+        @CacheEvict(value = "owners", key = "#p0.owner.id", condition = "#p0.owner != null"),
+        @CacheEvict(value = "fragments", key = "'pet-' + #p0.id") })
     void save(Pet pet);
 
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory registry of all {@link PetType}s, loaded once at startup. Pet types practically never change, so
+ * binding and rendering pet forms looks them up here instead of querying the database every time.
+ * <p>
+ * The registry holds an immutable snapshot indexed by id and by name; {@link #refresh()} replaces the snapshot
+ * after pet types have been changed in the database.
+ * </p>
+ */
+@Component
+public class PetTypeRegistry implements SmartInitializingSingleton {
+
+    private final PetRepository pets;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.<PetType>emptyList());
+
+    public PetTypeRegistry(PetRepository pets) {
+        this.pets = pets;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    /**
+     * Reload all pet types from the data store.
+     */
+    public void refresh() {
+        this.snapshot = new Snapshot(this.pets.findPetTypes());
+    }
+
+    /**
+     * @return all {@link PetType}s, ordered by name
+     */
+    public List<PetType> findAll() {
+        return this.snapshot.all;
+    }
+
+    /**
+     * @param name the exact name of the pet type
+     * @return the {@link PetType}, or <code>null</code> if none found
+     */
+    public PetType findByName(String name) {
+        return this.snapshot.byName.get(name);
+    }
+
+    /**
+     * @param id the id of the pet type
+     * @return the {@link PetType}, or <code>null</code> if none found
+     */
+    public PetType findById(Integer id) {
+        return this.snapshot.byId.get(id);
+    }
+
+    private static final class Snapshot {
+
+        private final List<PetType> all;
+
+        private final Map<Integer, PetType> byId = new HashMap<>();
+
+        private final Map<String, PetType> byName = new HashMap<>();
+
+        Snapshot(List<PetType> types) {
+            this.all = Collections.unmodifiableList(new ArrayList<>(types));
+            for (PetType type : types) {
+                this.byId.put(type.getId(), type);
+                this.byName.put(type.getName(), type);
+            }
+        }
+    }
+
+}
@@ -32,6 +32,8 @@ public class PetValidator implements Validator {
 
     private static final String REQUIRED = "required";
 
+    private static final int NAME_LENGTH = 30;
+
     @Override
     public void validate(Object obj, Errors errors) {
         Pet pet = (Pet) obj;
@@ -39,6 +41,8 @@ public class PetValidator implements Validator {
         // name validation
         if (!StringUtils.hasLength(name)) {
             errors.rejectValue("name", REQUIRED, REQUIRED);
+        } else if (name.length() > NAME_LENGTH) {
+            errors.rejectValue("name", "tooLong", new Object[] { NAME_LENGTH }, "is too long");
         }
 
         // type validation
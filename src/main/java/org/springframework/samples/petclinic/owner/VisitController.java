@@ -15,12 +15,17 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitIntakeQueue;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.util.Map;
@@ -35,13 +40,18 @@ import java.util.Map;
 @Controller
 class VisitController {
 
+    private static final int VISITS_PAGE_SIZE = 20;
+
     private final VisitRepository visits;
     private final PetRepository pets;
+    private final VisitIntakeQueue intake;
 
 
-    public VisitController(VisitRepository visits, PetRepository pets) {
+    public VisitController(VisitRepository visits, PetRepository pets, ObjectProvider<VisitIntakeQueue> intake) {
         this.visits = visits;
         this.pets = pets;
+        // only present when the asynchronous intake is enabled
+        this.intake = intake.getIfAvailable();
     }
 
     @InitBinder
@@ -64,25 +74,48 @@ class VisitController {
         Pet pet = this.pets.findById(petId);
         model.put("pet", pet);
         Visit visit = new Visit();
-        pet.addVisit(visit);
+        // only link the visit to the pet: adding it to pet.visits would load the whole visit history
+        visit.setPetId(pet.getId());
         return visit;
     }
 
     // Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is called
     @GetMapping("/owners/*/pets/{petId}/visits/new")
     public String initNewVisitForm(@PathVariable("petId") int petId, Map<String, Object> model) {
+        model.put("previousVisits", this.visits.findPageByPetId(petId, PageRequest.of(0, VISITS_PAGE_SIZE)));
         return "pets/createOrUpdateVisitForm";
     }
 
     // Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is called
     @PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-    public String processNewVisitForm(@Valid Visit visit, BindingResult result) {
+    public String processNewVisitForm(@Valid Visit visit, BindingResult result, @PathVariable("petId") int petId,
+                                      Map<String, Object> model) {
+        if (this.intake != null && visit.getDate() == null) {
+            // the journal needs a date; visits saved in the request thread may go without one
+            result.rejectValue("date", "required", "required");
+        }
         if (result.hasErrors()) {
+            model.put("previousVisits", this.visits.findPageByPetId(petId, PageRequest.of(0, VISITS_PAGE_SIZE)));
             return "pets/createOrUpdateVisitForm";
+        } else if (this.intake != null) {
+            if (!this.intake.submit(visit)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many visits waiting, try again");
+            }
+            return "redirect:/owners/{ownerId}";
         } else {
             this.visits.save(visit);
             return "redirect:/owners/{ownerId}";
         }
     }
 
+    /**
+     * Page through the visit history of a pet, most recent first.
+     */
+    @GetMapping("/owners/{ownerId}/pets/{petId}/visits")
+    public String showVisits(@PathVariable("petId") int petId, @RequestParam(value = "page", defaultValue = "0") int page,
+                             Map<String, Object> model) {
+        model.put("visits", this.visits.findPageByPetId(petId, PageRequest.of(Math.max(page, 0), VISITS_PAGE_SIZE)));
+        return "pets/visitList";
+    }
+
 }
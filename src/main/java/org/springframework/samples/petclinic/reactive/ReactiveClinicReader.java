@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reactive;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSummary;
+import org.springframework.samples.petclinic.vet.VetsChangedEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking read access to vets and owners for high fan-out lookups.
+ * <p>
+ * The blocking repositories run on a dedicated scheduler of <code>petclinic.reactive.jdbc-threads</code> threads,
+ * sized like the connection pool, so callers never block and at most that many lookups wait on the database.
+ * Concurrent lookups of the same owner share one query, and the vet list is shared by all callers for
+ * <code>petclinic.reactive.vets-ttl-seconds</code>, or until a {@link VetsChangedEvent} like the other vet caches.
+ * </p>
+ */
+@Component
+public class ReactiveClinicReader implements DisposableBean {
+
+    private final OwnerRepository owners;
+
+    private final Scheduler jdbc;
+
+    private final Mono<List<VetSummary>> vetsQuery;
+
+    private final Duration vetsTtl;
+
+    private volatile Mono<List<VetSummary>> vets;
+
+    private final ConcurrentMap<Integer, Mono<OwnerSummary>> ownerLookups = new ConcurrentHashMap<>();
+
+    public ReactiveClinicReader(OwnerRepository owners, VetRepository vets,
+                                @Value("${petclinic.reactive.jdbc-threads:10}") int jdbcThreads,
+                                @Value("${petclinic.reactive.vets-ttl-seconds:10}") long vetsTtlSeconds) {
+        this.owners = owners;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.jdbc = Schedulers.fromExecutorService(Executors.newFixedThreadPool(jdbcThreads, task -> {
+            Thread thread = new Thread(task, "reactive-jdbc-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.vetsQuery = Mono.fromCallable(vets::findAllSummaries).subscribeOn(this.jdbc);
+        this.vetsTtl = Duration.ofSeconds(vetsTtlSeconds);
+        this.vets = this.vetsQuery.cache(this.vetsTtl);
+    }
+
+    /**
+     * @return all vets with their specialties, ordered by id
+     */
+    public Mono<List<VetSummary>> findVets() {
+        return Mono.defer(() -> this.vets);
+    }
+
+    /**
+     * Discard the shared vet list, including a query still in flight, so that the next caller reads fresh data.
+     */
+    @EventListener(VetsChangedEvent.class)
+    public void invalidateVets() {
+        this.vets = this.vetsQuery.cache(this.vetsTtl);
+    }
+
+    /**
+     * @param id the owner id
+     * @return the owner with the names of its pets, or an empty {@link Mono} if there is no such owner
+     */
+    public Mono<OwnerSummary> findOwner(int id) {
+        return Mono.defer(() -> this.ownerLookups.computeIfAbsent(id, key -> Mono
+            .fromCallable(() -> first(this.owners.findSummariesByIdIn(Collections.singleton(key))))
+            .subscribeOn(this.jdbc)
+            .doFinally(signal -> this.ownerLookups.remove(key))
+            .cache()));
+    }
+
+    @Override
+    public void destroy() {
+        this.jdbc.dispose();
+    }
+
+    private static OwnerSummary first(List<OwnerSummary> summaries) {
+        return summaries.isEmpty() ? null : summaries.get(0);
+    }
+
+}
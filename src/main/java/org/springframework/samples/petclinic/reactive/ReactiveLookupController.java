@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reactive;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.vet.VetSummary;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * JSON lookups of vets and owners for integration partners. The handlers return {@link Mono}s, which Spring MVC
+ * serves asynchronously: the request thread is released while the {@link ReactiveClinicReader} queries the database.
+ */
+@RestController
+@RequestMapping("/reactive")
+class ReactiveLookupController {
+
+    private final ReactiveClinicReader reader;
+
+    public ReactiveLookupController(ReactiveClinicReader reader) {
+        this.reader = reader;
+    }
+
+    @GetMapping("/vets")
+    public Mono<List<VetSummary>> listVets() {
+        return this.reader.findVets();
+    }
+
+    @GetMapping("/owners/{ownerId}")
+    public Mono<OwnerSummary> showOwner(@PathVariable("ownerId") int ownerId) {
+        return this.reader.findOwner(ownerId)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No owner " + ownerId)));
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Locale;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads the <code>Accept-Encoding</code> request header, including quality values, so that <code>gzip;q=0</code>
+ * refuses gzip and <code>*</code> accepts it.
+ */
+final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * @param header the value of the header, <code>null</code> if absent
+     * @return whether gzip has a quality above zero, either by name or through <code>*</code>
+     */
+    static boolean acceptsGzip(@Nullable String header) {
+        if (header == null) {
+            return false;
+        }
+        Float gzip = null;
+        Float any = null;
+        for (String element : StringUtils.tokenizeToStringArray(header, ",")) {
+            String[] parts = StringUtils.tokenizeToStringArray(element, ";");
+            if (parts.length == 0) {
+                continue;
+            }
+            String coding = parts[0].toLowerCase(Locale.ROOT);
+            float quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private static float quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            int equals = parts[i].indexOf('=');
+            if (equals > 0 && parts[i].substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Float.parseFloat(parts[i].substring(equals + 1).trim());
+                } catch (NumberFormatException ex) {
+                    // an unreadable weight does not accept the coding
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
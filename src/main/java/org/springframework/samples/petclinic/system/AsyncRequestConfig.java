@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs asynchronous request processing, such as the streamed JSON bodies of the API, on a bounded pool instead of
+ * Spring MVC's default executor, which starts a new thread per request. When all threads are busy and the queue is
+ * full, the body is written on the container thread, which slows new requests down instead of failing them. The
+ * timeout is set with <code>spring.mvc.async.request-timeout</code>.
+ */
+@Configuration
+class AsyncRequestConfig implements WebMvcConfigurer {
+
+    private final int threads;
+
+    private final int queueCapacity;
+
+    AsyncRequestConfig(@Value("${petclinic.mvc.async.threads:16}") int threads,
+                       @Value("${petclinic.mvc.async.queue-capacity:100}") int queueCapacity) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(this.threads);
+        executor.setMaxPoolSize(this.threads);
+        executor.setQueueCapacity(this.queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+
+}
@@ -1,32 +1,94 @@
 package org.springframework.samples.petclinic.system;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.cache.configuration.Configuration;
-import javax.cache.configuration.MutableConfiguration;
 
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
 /**
  * Cache could be disabled in unit test.
+ * <p>
+ * Every cache is bounded: sizing, expiry and the optional off-heap tier come from {@link CachePolicyProperties}
+ * and are applied through Ehcache's native configuration.
+ * </p>
+ * <p>
+ * Caches are transaction-aware: puts and evictions made within a transaction are applied when it commits. An eviction
+ * applied before the commit would let a concurrent request cache the data being replaced again, until it expires.
+ * </p>
  */
 @org.springframework.context.annotation.Configuration
 @EnableCaching
+@EnableConfigurationProperties(CachePolicyProperties.class)
 @Profile("production")
 class CacheConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    static final List<String> CACHE_NAMES = Arrays.asList("vets", "owners", FragmentCacheDialect.CACHE_NAME);
+
     @Bean
-    public JCacheManagerCustomizer cacheManagerCustomizer() {
+    public JCacheManagerCustomizer cacheManagerCustomizer(CachePolicyProperties properties) {
         return cm -> {
-            Configuration<Object, Object> cacheConfiguration = createCacheConfiguration();
-            cm.createCache("vets", cacheConfiguration);
+            for (String name : CACHE_NAMES) {
+                CachePolicyProperties.Policy policy = properties.getPolicy(name);
+                cm.createCache(name, createCacheConfiguration(policy));
+                // statistics are always on so that hit/miss counts are available through the actuator
+                cm.enableStatistics(name, true);
+                logger.info("Cache '{}': {}", name, policy);
+            }
         };
     }
 
-    private Configuration<Object, Object> createCacheConfiguration() {
-        // Create a cache using infinite heap. A real application will want to use an
-        // implementation dependent configuration that will better fit your needs
-        return new MutableConfiguration<>().setStatisticsEnabled(true);
+    @Bean
+    public CacheManagerCustomizer<JCacheCacheManager> transactionAwareCacheManager() {
+        return cm -> cm.setTransactionAware(true);
+    }
+
+    static Configuration<Serializable, Serializable> createCacheConfiguration(CachePolicyProperties.Policy policy) {
+        ResourcePoolsBuilder resources = ResourcePoolsBuilder.newResourcePoolsBuilder();
+        if (policy.getHeapMb() != null) {
+            resources = resources.heap(policy.getHeapMb(), MemoryUnit.MB);
+        } else {
+            resources = resources.heap(policy.getMaxEntries(), EntryUnit.ENTRIES);
+        }
+        if (policy.getOffHeapMb() != null) {
+            resources = resources.offheap(policy.getOffHeapMb(), MemoryUnit.MB);
+        }
+
+        CacheConfigurationBuilder<Serializable, Serializable> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Serializable.class, Serializable.class, resources);
+        if (policy.getTimeToLive() != null && policy.getTimeToIdle() != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.expiry()
+                .create(policy.getTimeToLive())
+                .access(policy.getTimeToIdle())
+                .update(policy.getTimeToLive())
+                .build());
+        } else if (policy.getTimeToLive() != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(policy.getTimeToLive()));
+        } else if (policy.getTimeToIdle() != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(policy.getTimeToIdle()));
+        }
+        if (Boolean.TRUE.equals(policy.getStoreByValue())) {
+            // cached entities are mutable, so hand out copies as the default JCache configuration did
+            builder = builder.withKeySerializingCopier().withValueSerializingCopier();
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
     }
 }
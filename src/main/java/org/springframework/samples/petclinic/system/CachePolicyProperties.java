@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing and expiry policy of the application caches, bound from <code>petclinic.cache.*</code>.
+ * <p>
+ * <code>petclinic.cache.defaults.*</code> applies to every cache; <code>petclinic.cache.caches.&lt;name&gt;.*</code>
+ * overrides individual settings for one cache.
+ * </p>
+ */
+@ConfigurationProperties(prefix = "petclinic.cache")
+public class CachePolicyProperties {
+
+    private final Policy defaults = new Policy();
+
+    private final Map<String, Policy> caches = new LinkedHashMap<>();
+
+    public CachePolicyProperties() {
+        this.defaults.setMaxEntries(1000L);
+        this.defaults.setStoreByValue(true);
+    }
+
+    public Policy getDefaults() {
+        return this.defaults;
+    }
+
+    public Map<String, Policy> getCaches() {
+        return this.caches;
+    }
+
+    /**
+     * @param name the cache name
+     * @return the effective policy of the given cache: its own settings, completed with the defaults
+     */
+    public Policy getPolicy(String name) {
+        Policy policy = this.caches.get(name);
+        return policy == null ? this.defaults : policy.withDefaults(this.defaults);
+    }
+
+    public static class Policy {
+
+        /**
+         * Maximum number of entries kept on heap. Ignored when heapMb is set.
+         */
+        private Long maxEntries;
+
+        /**
+         * Maximum size of the heap tier in megabytes.
+         */
+        private Long heapMb;
+
+        /**
+         * Size of the optional off-heap tier in megabytes. Keys and values must be serializable.
+         */
+        private Long offHeapMb;
+
+        /**
+         * Time after which an entry expires once created or updated.
+         */
+        private Duration timeToLive;
+
+        /**
+         * Time after which an entry expires once last accessed.
+         */
+        private Duration timeToIdle;
+
+        /**
+         * Whether callers get a copy of the cached value rather than the cached instance itself.
+         */
+        private Boolean storeByValue;
+
+        public Long getMaxEntries() {
+            return this.maxEntries;
+        }
+
+        public void setMaxEntries(Long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Long getHeapMb() {
+            return this.heapMb;
+        }
+
+        public void setHeapMb(Long heapMb) {
+            this.heapMb = heapMb;
+        }
+
+        public Long getOffHeapMb() {
+            return this.offHeapMb;
+        }
+
+        public void setOffHeapMb(Long offHeapMb) {
+            this.offHeapMb = offHeapMb;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getTimeToIdle() {
+            return this.timeToIdle;
+        }
+
+        public void setTimeToIdle(Duration timeToIdle) {
+            this.timeToIdle = timeToIdle;
+        }
+
+        public Boolean getStoreByValue() {
+            return this.storeByValue;
+        }
+
+        public void setStoreByValue(Boolean storeByValue) {
+            this.storeByValue = storeByValue;
+        }
+
+        Policy withDefaults(Policy defaults) {
+            Policy merged = new Policy();
+            merged.maxEntries = this.maxEntries != null ? this.maxEntries : defaults.maxEntries;
+            merged.heapMb = this.heapMb != null ? this.heapMb : defaults.heapMb;
+            merged.offHeapMb = this.offHeapMb != null ? this.offHeapMb : defaults.offHeapMb;
+            merged.timeToLive = this.timeToLive != null ? this.timeToLive : defaults.timeToLive;
+            merged.timeToIdle = this.timeToIdle != null ? this.timeToIdle : defaults.timeToIdle;
+            merged.storeByValue = this.storeByValue != null ? this.storeByValue : defaults.storeByValue;
+            return merged;
+        }
+
+        @Override
+        public String toString() {
+            return "heap=" + (this.heapMb != null ? this.heapMb + "MB" : this.maxEntries + " entries")
+                + ", off-heap=" + (this.offHeapMb != null ? this.offHeapMb + "MB" : "none")
+                + ", time-to-live=" + (this.timeToLive != null ? this.timeToLive : "none")
+                + ", time-to-idle=" + (this.timeToIdle != null ? this.timeToIdle : "none")
+                + ", store-by-value=" + this.storeByValue;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+import org.springframework.web.servlet.resource.TransformedResource;
+
+/**
+ * Keeps the result of the other transformers of a resource, such as the rewritten links of a style sheet, and a gzip
+ * variant of text resources compressed once at the best compression level. Clients accepting gzip get the
+ * compressed variant, and both variants of a compressible resource vary on <code>Accept-Encoding</code>, so a shared
+ * cache never hands the identity variant to every client. Must be the first transformer of the chain, so the transformers that rewrite content have to
+ * be registered explicitly after it; see {@link StaticResourcesConfig}.
+ */
+class CompressingResourceTransformer implements ResourceTransformer {
+
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(
+        Arrays.asList("css", "js", "map", "json", "svg", "txt", "eot", "ttf"));
+
+    private final ConcurrentMap<String, Variants> variants = new ConcurrentHashMap<>();
+
+    @Override
+    public Resource transform(HttpServletRequest request, Resource resource, ResourceTransformerChain chain)
+        throws IOException {
+        String key = resource.getURL().toString();
+        Variants variants = this.variants.get(key);
+        if (variants == null) {
+            variants = new Variants(chain.transform(request, resource));
+            Variants existing = this.variants.putIfAbsent(key, variants);
+            variants = existing != null ? existing : variants;
+        }
+        return AcceptEncoding.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) ? variants.getGzipped()
+            : variants.identity;
+    }
+
+    private static final class Variants {
+
+        private final Resource identity;
+
+        private volatile Resource gzipped;
+
+        Variants(Resource identity) throws IOException {
+            this.identity = isCompressible(identity) ? new VariantResource(identity, read(identity), null) : identity;
+        }
+
+        Resource getGzipped() throws IOException {
+            // compressing twice under contention is harmless
+            if (this.gzipped == null) {
+                this.gzipped = compress(this.identity);
+            }
+            return this.gzipped;
+        }
+
+        private static Resource compress(Resource resource) throws IOException {
+            if (!isCompressible(resource)) {
+                return resource;
+            }
+            byte[] content = read(resource);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                {
+                    this.def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                gzip.write(content);
+            }
+            return out.size() < content.length ? new VariantResource(resource, out.toByteArray(), "gzip") : resource;
+        }
+
+        private static boolean isCompressible(Resource resource) {
+            return COMPRESSIBLE.contains(StringUtils.getFilenameExtension(resource.getFilename()));
+        }
+
+        private static byte[] read(Resource resource) throws IOException {
+            try (InputStream in = resource.getInputStream()) {
+                return StreamUtils.copyToByteArray(in);
+            }
+        }
+    }
+
+    private static final class VariantResource extends TransformedResource implements HttpResource {
+
+        private final Resource original;
+
+        @Nullable
+        private final String contentEncoding;
+
+        VariantResource(Resource original, byte[] content, @Nullable String contentEncoding) {
+            super(original, content);
+            this.original = original instanceof VariantResource ? ((VariantResource) original).original : original;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if (this.original instanceof HttpResource) {
+                headers.putAll(((HttpResource) this.original).getResponseHeaders());
+            }
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (this.contentEncoding == null) {
+                return headers;
+            }
+            String eTag = headers.getETag();
+            if (eTag != null && eTag.endsWith("\"")) {
+                // the compressed bytes are a different representation
+                headers.setETag(eTag.substring(0, eTag.length() - 1) + "-" + this.contentEncoding + "\"");
+            }
+            headers.set(HttpHeaders.CONTENT_ENCODING, this.contentEncoding);
+            return headers;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Compresses responses with {@link CompressionFilter}, following {@link CompressionProperties}. Replaces the
+ * compression of the embedded server (<code>server.compression.*</code>), which has a single minimum size for all
+ * content types and no compression level. Set <code>petclinic.compression.enabled=false</code> to turn it off.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.compression", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(CompressionProperties.class)
+class CompressionConfig {
+
+    @Bean
+    FilterRegistrationBean<CompressionFilter> compressionFilter(CompressionProperties properties) {
+        FilterRegistrationBean<CompressionFilter> registration =
+            new FilterRegistrationBean<>(new CompressionFilter(properties));
+        // right after the character encoding filter, so that every other filter writes through it
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+
+}
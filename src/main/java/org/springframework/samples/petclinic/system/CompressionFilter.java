@@ -0,0 +1,431 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Compresses responses with gzip for clients accepting it, following {@link CompressionProperties}: the body is
+ * buffered up to the minimum size of its content type and only compressed once it reaches it, at the level of the
+ * content type. Responses of other types, or already encoded like precompressed static resources, are passed
+ * through. Compressed output is flushed along with the response, so streamed responses keep streaming. The ETag of a
+ * compressed response is weakened, as its bytes differ from the identity representation the strong validator names,
+ * while conditional requests still match it.
+ * <p>
+ * Asynchronous requests are compressed too: the compressed stream is finished by the last dispatch of the request.
+ * Non-blocking writes are not compressed, as such a response may be completed without a last dispatch: setting a
+ * {@link WriteListener} switches the response to the container's stream.
+ * </p>
+ */
+class CompressionFilter extends OncePerRequestFilter {
+
+    private final CompressionProperties properties;
+
+    CompressionFilter(CompressionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        CompressingResponse compressing = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressing == null && !isAsyncDispatch(request)
+            && AcceptEncoding.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+            && !HttpMethod.HEAD.matches(request.getMethod())) {
+            compressing = new CompressingResponse(response, this.properties);
+            response = compressing;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // also when the handler fails, so that the deflater is released
+            if (compressing != null && !request.isAsyncStarted()) {
+                compressing.finish();
+            }
+        }
+    }
+
+    private static String weakETag(String eTag) {
+        return eTag == null || eTag.startsWith("W/") ? eTag : "W/" + eTag;
+    }
+
+    /**
+     * Holds back <code>Content-Length</code>, which is only known once it is decided whether to compress, and weakens
+     * the ETag of a compressed body.
+     */
+    private static final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final CompressionProperties properties;
+
+        private long contentLength = -1;
+
+        private CompressingOutputStream stream;
+
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response, CompressionProperties properties) {
+            super(response);
+            this.properties = properties;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (this.writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (this.writer == null) {
+                if (this.stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called for this response");
+                }
+                this.writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return this.writer;
+        }
+
+        private CompressingOutputStream stream() {
+            if (this.stream == null) {
+                this.stream = new CompressingOutputStream(this);
+            }
+            return this.stream;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            this.contentLength = length;
+            if (this.stream != null && this.stream.isPassingThrough()) {
+                // not compressed, so the length is the one of the body sent
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value != null ? Long.parseLong(value) : -1);
+            } else if (HttpHeaders.ETAG.equalsIgnoreCase(name) && isCompressing()) {
+                super.setHeader(name, weakETag(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else if (HttpHeaders.ETAG.equalsIgnoreCase(name) && isCompressing()) {
+                super.addHeader(name, weakETag(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        private boolean isCompressing() {
+            return this.stream != null && this.stream.isCompressing();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            if (this.stream != null) {
+                this.stream.flush();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (this.stream != null) {
+                this.stream.resetBuffer();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if (this.stream != null) {
+                this.stream.resetBuffer();
+            }
+            super.reset();
+            this.contentLength = -1;
+        }
+
+        void finish() throws IOException {
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            if (this.stream != null) {
+                this.stream.finish();
+            } else if (this.contentLength >= 0) {
+                super.setContentLengthLong(this.contentLength);
+            }
+        }
+
+        HttpServletResponse getHttpResponse() {
+            return (HttpServletResponse) getResponse();
+        }
+    }
+
+    /**
+     * Buffers the body until it is large enough to compress, then writes through a gzip stream. Passes the body
+     * through as soon as it is known not to be compressed.
+     */
+    private static final class CompressingOutputStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+
+        private ByteArrayOutputStream buffer;
+
+        private CompressionProperties.Policy policy;
+
+        private OutputStream target;
+
+        private boolean nonBlocking;
+
+        CompressingOutputStream(CompressingResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (this.target == null) {
+                if (this.buffer == null) {
+                    // first write: the content type is set by now
+                    this.policy = policy();
+                    if (this.policy == null) {
+                        passThrough(false);
+                        this.target.write(bytes, offset, length);
+                        return;
+                    }
+                    this.buffer = new ByteArrayOutputStream(Math.max(this.policy.getMinSize(), 256));
+                }
+                this.buffer.write(bytes, offset, length);
+                if (this.buffer.size() >= this.policy.getMinSize()) {
+                    compress();
+                }
+                return;
+            }
+            this.target.write(bytes, offset, length);
+        }
+
+        private CompressionProperties.Policy policy() {
+            HttpServletResponse response = this.response.getHttpResponse();
+            if (response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                return null;
+            }
+            CompressionProperties.Policy policy = this.response.properties.getPolicy(response.getContentType());
+            long contentLength = this.response.contentLength;
+            return policy == null || (contentLength >= 0 && contentLength < policy.getMinSize()) ? null : policy;
+        }
+
+        private void compress() throws IOException {
+            HttpServletResponse response = this.response.getHttpResponse();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String eTag = response.getHeader(HttpHeaders.ETAG);
+            if (eTag != null) {
+                response.setHeader(HttpHeaders.ETAG, weakETag(eTag));
+            }
+            this.target = new GzipStream(response.getOutputStream(), this.policy.getLevel());
+            this.buffer.writeTo(this.target);
+            this.buffer = null;
+        }
+
+        /**
+         * @param complete whether the whole body has been written
+         */
+        private void passThrough(boolean complete) throws IOException {
+            HttpServletResponse response = this.response.getHttpResponse();
+            if (this.response.contentLength >= 0) {
+                response.setContentLengthLong(this.response.contentLength);
+            } else if (complete && this.buffer != null) {
+                response.setContentLength(this.buffer.size());
+            }
+            this.target = response.getOutputStream();
+            if (this.buffer != null) {
+                this.buffer.writeTo(this.target);
+                this.buffer = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // a body smaller than the minimum size stays buffered, so that it is not compressed after all
+            if (this.target != null) {
+                this.target.flush();
+            }
+        }
+
+        boolean isCompressing() {
+            return this.target instanceof GzipStream;
+        }
+
+        boolean isPassingThrough() {
+            return this.target != null && !isCompressing();
+        }
+
+        void resetBuffer() {
+            if (this.target != null) {
+                throw new IllegalStateException("Cannot reset the buffer of a committed response");
+            }
+            this.buffer = null;
+        }
+
+        void finish() throws IOException {
+            if (this.target == null) {
+                if (this.buffer == null) {
+                    // nothing written; the underlying stream is left alone, for an error page for example
+                    if (this.response.contentLength >= 0) {
+                        this.response.getHttpResponse().setContentLengthLong(this.response.contentLength);
+                    }
+                    return;
+                }
+                passThrough(true);
+            }
+            if (isCompressing()) {
+                ((GzipStream) this.target).finish();
+            }
+            this.target.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            if (!this.nonBlocking) {
+                // blocking writes, the container's stream only answers in non-blocking mode
+                return true;
+            }
+            try {
+                return this.response.getHttpResponse().getOutputStream().isReady();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            if (isCompressing()) {
+                throw new IllegalStateException("Cannot switch a compressed response to non-blocking writes");
+            }
+            try {
+                if (this.target == null) {
+                    passThrough(false);
+                }
+                this.nonBlocking = true;
+                this.response.getHttpResponse().getOutputStream().setWriteListener(listener);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Gzip stream at a given compression level. Releases the native memory of its deflater as soon as it is finished,
+     * as closing it would close the response stream.
+     */
+    private static final class GzipStream extends GZIPOutputStream {
+
+        private boolean finished;
+
+        GzipStream(OutputStream out, int level) throws IOException {
+            // sync flush, so that flushing the response sends everything written so far
+            super(out, 8192, true);
+            this.def.setLevel(level);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (this.finished) {
+                return;
+            }
+            this.finished = true;
+            try {
+                super.finish();
+            } finally {
+                this.def.end();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.finished) {
+                this.out.flush();
+            } else {
+                super.flush();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Response compression policy, bound from <code>petclinic.compression.*</code>.
+ * <p>
+ * Only the content types listed by a group of <code>petclinic.compression.types.&lt;name&gt;.mime-types</code> are
+ * compressed. <code>petclinic.compression.defaults.*</code> applies to every group;
+ * <code>petclinic.compression.types.&lt;name&gt;.*</code> overrides individual settings for one group.
+ * </p>
+ */
+@ConfigurationProperties(prefix = "petclinic.compression")
+public class CompressionProperties {
+
+    private final Policy defaults = new Policy();
+
+    private final Map<String, Policy> types = new LinkedHashMap<>();
+
+    public CompressionProperties() {
+        this.defaults.setMinSize(2048);
+        this.defaults.setLevel(6);
+    }
+
+    public Policy getDefaults() {
+        return this.defaults;
+    }
+
+    public Map<String, Policy> getTypes() {
+        return this.types;
+    }
+
+    /**
+     * @param contentType the content type of a response, parameters included
+     * @return the effective policy of the given content type, completed with the defaults, or <code>null</code> if
+     * responses of this type are not compressed
+     */
+    public Policy getPolicy(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+        for (Policy policy : this.types.values()) {
+            for (String mimeType : policy.getMimeTypes()) {
+                if (MediaType.parseMediaType(mimeType).includes(mediaType)) {
+                    return policy.withDefaults(this.defaults);
+                }
+            }
+        }
+        return null;
+    }
+
+    public static class Policy {
+
+        /**
+         * Content types of the group, like <code>text/html</code> or <code>text/*</code>.
+         */
+        private List<String> mimeTypes = new ArrayList<>();
+
+        /**
+         * Minimum response size in bytes for compression to pay off. Smaller responses are sent as they are.
+         */
+        private Integer minSize;
+
+        /**
+         * Deflate level from 1 (fastest) to 9 (smallest).
+         */
+        private Integer level;
+
+        public List<String> getMimeTypes() {
+            return this.mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+
+        public Integer getMinSize() {
+            return this.minSize;
+        }
+
+        public void setMinSize(Integer minSize) {
+            this.minSize = minSize;
+        }
+
+        public Integer getLevel() {
+            return this.level;
+        }
+
+        public void setLevel(Integer level) {
+            this.level = level;
+        }
+
+        Policy withDefaults(Policy defaults) {
+            Policy merged = new Policy();
+            merged.mimeTypes = this.mimeTypes;
+            merged.minSize = this.minSize != null ? this.minSize : defaults.minSize;
+            merged.level = this.level != null ? this.level : defaults.level;
+            return merged;
+        }
+
+        @Override
+        public String toString() {
+            return "mime-types=" + this.mimeTypes + ", min-size=" + this.minSize + ", level=" + this.level;
+        }
+    }
+
+}
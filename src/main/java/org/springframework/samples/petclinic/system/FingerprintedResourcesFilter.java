@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Marks static resources requested under their content-hashed name as cacheable for a year and
+ * <code>immutable</code>, so that browsers do not even revalidate them on reload. The content of such a name never
+ * changes; a new version of a resource gets a new name.
+ */
+class FingerprintedResourcesFilter extends OncePerRequestFilter {
+
+    static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue()
+        + ", immutable";
+
+    private static final Pattern FINGERPRINT = Pattern.compile("-[0-9a-f]{32}\\.[^/.]+$");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        if (FINGERPRINT.matcher(request.getRequestURI()).find()) {
+            response = new ImmutableResponse(response);
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Replaces the <code>Cache-Control</code> header of the resource handler.
+     */
+    private static final class ImmutableResponse extends HttpServletResponseWrapper {
+
+        ImmutableResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            super.setHeader(name, HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(name) ? IMMUTABLE : value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            super.addHeader(name, HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(name) ? IMMUTABLE : value);
+        }
+    }
+
+}
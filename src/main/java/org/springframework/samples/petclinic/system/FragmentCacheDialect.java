@@ -0,0 +1,275 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.dialect.IDialect;
+import org.thymeleaf.dialect.IPostProcessorDialect;
+import org.thymeleaf.engine.AbstractTemplateHandler;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IModelFactory;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.ITemplateEvent;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.model.IXMLDeclaration;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.thymeleaf.postprocessor.PostProcessor;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.processor.element.AbstractAttributeModelProcessor;
+import org.thymeleaf.processor.element.IElementModelStructureHandler;
+import org.thymeleaf.standard.StandardDialect;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * Thymeleaf dialect caching rendered HTML fragments in the <code>fragments</code> cache (see {@link CacheConfig}).
+ * <p>
+ * <code>pc:cache="${'pet-' + pet.id}"</code> names the cache key of an element. When the key is cached, the element
+ * and its content are replaced by the cached HTML without evaluating anything inside; otherwise the element is
+ * rendered as usual, between marker comments from which a post-processor captures the rendered HTML into the cache.
+ * Whoever changes the data shown in a fragment evicts its key. Without the <code>fragments</code> cache, for example
+ * outside of the <code>production</code> profile, the attribute is simply removed.
+ * </p>
+ * Keys are evaluated after <code>th:each</code>, <code>th:if</code> and <code>th:with</code> of the same element.
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect implements IPostProcessorDialect {
+
+    static final String CACHE_NAME = "fragments";
+
+    private static final String START_MARKER = "pc:cache-start ";
+
+    private static final String END_MARKER = "pc:cache-end";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public FragmentCacheDialect(ObjectProvider<CacheManager> cacheManager) {
+        super("Fragment cache", "pc", StandardDialect.PROCESSOR_PRECEDENCE);
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * @return the fragment cache, or <code>null</code> if fragments are not cached
+     */
+    Cache getCache() {
+        CacheManager cacheManager = this.cacheManager.getIfAvailable();
+        return cacheManager == null ? null : cacheManager.getCache(CACHE_NAME);
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Collections.singleton(new CacheAttributeProcessor(this, dialectPrefix));
+    }
+
+    @Override
+    public int getDialectPostProcessorPrecedence() {
+        return StandardDialect.PROCESSOR_PRECEDENCE;
+    }
+
+    @Override
+    public Set<IPostProcessor> getPostProcessors() {
+        return Collections.singleton(new PostProcessor(TemplateMode.HTML, CaptureHandler.class, 0));
+    }
+
+    private static String encode(String key) {
+        try {
+            // comment content must not contain "--"
+            return URLEncoder.encode(key, "UTF-8").replace("-", "%2D");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String decode(String encoded) {
+        try {
+            return URLDecoder.decode(encoded, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Handles <code>pc:cache</code>: splices in the cached HTML, or marks the element for capture.
+     */
+    private static final class CacheAttributeProcessor extends AbstractAttributeModelProcessor {
+
+        private static final int PRECEDENCE = 650;
+
+        private final FragmentCacheDialect dialect;
+
+        CacheAttributeProcessor(FragmentCacheDialect dialect, String dialectPrefix) {
+            super(TemplateMode.HTML, dialectPrefix, null, false, "cache", true, PRECEDENCE, true);
+            this.dialect = dialect;
+        }
+
+        @Override
+        protected void doProcess(ITemplateContext context, IModel model, AttributeName attributeName,
+                                 String attributeValue, IElementModelStructureHandler structureHandler) {
+            Cache cache = this.dialect.getCache();
+            if (cache == null) {
+                return;
+            }
+            Object key = StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, attributeValue).execute(context);
+            if (key == null) {
+                return;
+            }
+            IModelFactory modelFactory = context.getModelFactory();
+            String html = cache.get(key.toString(), String.class);
+            if (html != null) {
+                model.reset();
+                model.add(modelFactory.createText(html));
+            } else {
+                // the marker goes before the element, so the attribute cannot be removed after this method
+                IProcessableElementTag tag = (IProcessableElementTag) model.get(0);
+                model.replace(0, modelFactory.removeAttribute(tag, attributeName));
+                model.insert(0, modelFactory.createComment(START_MARKER + encode(key.toString())));
+                model.add(modelFactory.createComment(END_MARKER));
+            }
+        }
+    }
+
+    /**
+     * Post-processor capturing the rendered HTML between marker comments into the cache. Fragments may nest: the
+     * HTML of an inner fragment is part of the outer one. Markers are not written to the output.
+     */
+    public static final class CaptureHandler extends AbstractTemplateHandler {
+
+        private final Deque<Capture> captures = new ArrayDeque<>();
+
+        private Cache cache;
+
+        @Override
+        public void setContext(ITemplateContext context) {
+            super.setContext(context);
+            for (IDialect dialect : context.getConfiguration().getDialects()) {
+                if (dialect instanceof FragmentCacheDialect) {
+                    this.cache = ((FragmentCacheDialect) dialect).getCache();
+                }
+            }
+        }
+
+        @Override
+        public void handleComment(IComment comment) {
+            String content = comment.getContent().toString();
+            if (content.startsWith(START_MARKER)) {
+                this.captures.push(new Capture(decode(content.substring(START_MARKER.length()))));
+            } else if (content.equals(END_MARKER)) {
+                Capture capture = this.captures.pop();
+                if (this.cache != null) {
+                    this.cache.put(capture.key, capture.html.toString());
+                }
+            } else {
+                capture(comment);
+                super.handleComment(comment);
+            }
+        }
+
+        @Override
+        public void handleXMLDeclaration(IXMLDeclaration declaration) {
+            capture(declaration);
+            super.handleXMLDeclaration(declaration);
+        }
+
+        @Override
+        public void handleDocType(IDocType docType) {
+            capture(docType);
+            super.handleDocType(docType);
+        }
+
+        @Override
+        public void handleCDATASection(ICDATASection section) {
+            capture(section);
+            super.handleCDATASection(section);
+        }
+
+        @Override
+        public void handleText(IText text) {
+            capture(text);
+            super.handleText(text);
+        }
+
+        @Override
+        public void handleStandaloneElement(IStandaloneElementTag tag) {
+            capture(tag);
+            super.handleStandaloneElement(tag);
+        }
+
+        @Override
+        public void handleOpenElement(IOpenElementTag tag) {
+            capture(tag);
+            super.handleOpenElement(tag);
+        }
+
+        @Override
+        public void handleCloseElement(ICloseElementTag tag) {
+            capture(tag);
+            super.handleCloseElement(tag);
+        }
+
+        @Override
+        public void handleProcessingInstruction(IProcessingInstruction instruction) {
+            capture(instruction);
+            super.handleProcessingInstruction(instruction);
+        }
+
+        private void capture(ITemplateEvent event) {
+            for (Capture capture : this.captures) {
+                try {
+                    event.write(capture.html);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        }
+
+        private static final class Capture {
+
+            private final String key;
+
+            private final StringWriter html = new StringWriter();
+
+            Capture(String key) {
+                this.key = key;
+            }
+        }
+    }
+
+}
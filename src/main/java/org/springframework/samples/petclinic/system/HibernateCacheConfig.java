@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import org.hibernate.cache.internal.StandardQueryCache;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Regions of the Hibernate second-level cache, which holds the reference entities (pet types, specialties, vets and
+ * their specialties) and the results of the queries listing them.
+ * <p>
+ * Hibernate looks its regions up in the default JCache manager, the one Spring's caches live in, and would create
+ * unbounded ones for missing regions; they are created here first, before the entity manager factory starts, sized
+ * by {@link CachePolicyProperties} like the Spring caches. Entries are stored by reference unless configured
+ * otherwise, as Hibernate only caches disassembled state. Region hit, miss and put counts are published as
+ * <code>hibernate.second.level.cache.*</code> metrics.
+ * </p>
+ */
+@Configuration
+@EnableConfigurationProperties(CachePolicyProperties.class)
+class HibernateCacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(HibernateCacheConfig.class);
+
+    static final List<String> REGION_NAMES = Arrays.asList("pet-types", "specialties", "vet-entities",
+        "vet-specialties", "reference-queries", StandardQueryCache.class.getName(), UpdateTimestampsCache.REGION_NAME);
+
+    @Bean
+    public HibernateCacheRegions hibernateCacheRegions(CachePolicyProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider().getCacheManager();
+        for (String name : REGION_NAMES) {
+            if (cacheManager.getCache(name) != null) {
+                continue;
+            }
+            CachePolicyProperties.Policy policy = regionPolicy(properties, name);
+            cacheManager.createCache(name, CacheConfig.createCacheConfiguration(policy));
+            cacheManager.enableStatistics(name, true);
+            logger.info("Hibernate cache region '{}': {}", name, policy);
+        }
+        return new HibernateCacheRegions();
+    }
+
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory, "entityManagerFactory", Collections.emptyList());
+    }
+
+    private static CachePolicyProperties.Policy regionPolicy(CachePolicyProperties properties, String name) {
+        CachePolicyProperties.Policy defaults =
+            properties.getDefaults().withDefaults(new CachePolicyProperties.Policy());
+        defaults.setStoreByValue(false);
+        CachePolicyProperties.Policy own = properties.getCaches().get(name);
+        CachePolicyProperties.Policy policy = own != null ? own.withDefaults(defaults) : defaults;
+        if (UpdateTimestampsCache.REGION_NAME.equals(name)) {
+            // query results are only valid while the timestamps of their tables are known
+            policy.setTimeToLive(null);
+            policy.setTimeToIdle(null);
+        }
+        return policy;
+    }
+
+    /**
+     * Marker for the created regions, which the entity manager factory depends on.
+     */
+    static final class HibernateCacheRegions {
+    }
+
+    @Configuration
+    static class HibernateCacheRegionsDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        HibernateCacheRegionsDependency() {
+            super("hibernateCacheRegions");
+        }
+    }
+
+}
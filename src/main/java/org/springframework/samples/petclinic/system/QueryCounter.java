@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the SQL statements the current thread executes through the data source, see
+ * {@link QueryCountingConfig}. Counting is scoped: every {@link #begin()} starts a new {@link QueryStats} that
+ * records statements until its {@link #end(QueryStats)}, and nested scopes all record, so a test can count a request
+ * that is itself counted by the request interceptor.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<List<QueryStats>> ACTIVE = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Start counting on the current thread.
+     * @return the statistics, updated until {@link #end(QueryStats)}
+     */
+    public static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        List<QueryStats> active = ACTIVE.get();
+        if (active == null) {
+            active = new ArrayList<>(2);
+            ACTIVE.set(active);
+        }
+        active.add(stats);
+        return stats;
+    }
+
+    /**
+     * Stop counting into the given statistics.
+     * @param stats statistics returned by {@link #begin()} on this thread
+     * @return the given statistics
+     */
+    public static QueryStats end(QueryStats stats) {
+        List<QueryStats> active = ACTIVE.get();
+        if (active != null && active.remove(stats) && active.isEmpty()) {
+            ACTIVE.remove();
+        }
+        return stats;
+    }
+
+    /**
+     * Count the statements executed by the given action on the current thread.
+     * @param action the action, for example a <code>MockMvc</code> request
+     * @return the statistics of the action
+     */
+    public static QueryStats count(Callable<?> action) throws Exception {
+        QueryStats stats = begin();
+        try {
+            action.call();
+        } finally {
+            end(stats);
+        }
+        return stats;
+    }
+
+    static boolean isCounting() {
+        return ACTIVE.get() != null;
+    }
+
+    static void statement(String sql, long nanos) {
+        List<QueryStats> active = ACTIVE.get();
+        if (active != null) {
+            for (QueryStats stats : active) {
+                stats.statement(sql, nanos);
+            }
+        }
+    }
+
+    static void row() {
+        List<QueryStats> active = ACTIVE.get();
+        if (active != null) {
+            for (QueryStats stats : active) {
+                stats.row();
+            }
+        }
+    }
+
+}
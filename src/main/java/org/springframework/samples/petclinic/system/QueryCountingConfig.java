@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.sql.SQLException;
+import java.util.Collection;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.jdbc.metadata.HikariDataSourcePoolMetadata;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Counts SQL statements per request: the data source is wrapped by {@link QueryCountingDataSource} and every
+ * controller request is counted by {@link QueryCountingInterceptor}. A statement executed
+ * <code>petclinic.sql.counting.repeat-threshold</code> times or more within a request is reported as a probable
+ * N+1 select. Counting is off unless <code>petclinic.sql.counting.enabled=true</code>.
+ * <p>
+ * Spring Boot recognizes a Hikari pool by its type, which the wrapper hides, so the pool metadata and the Hikari
+ * metrics are bound here through {@link DataSource#unwrap(Class)}.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.sql.counting", name = "enabled")
+class QueryCountingConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private final int repeatThreshold;
+
+    QueryCountingConfig(ObjectProvider<MeterRegistry> registry,
+                        @Value("${petclinic.sql.counting.repeat-threshold:5}") int repeatThreshold) {
+        this.registry = registry;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? QueryCountingDataSource.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountingInterceptor(this.registry, this.repeatThreshold));
+    }
+
+    @Configuration
+    @ConditionalOnClass(HikariDataSource.class)
+    static class HikariPoolConfig {
+
+        @Bean
+        DataSourcePoolMetadataProvider countedHikariPoolMetadataProvider() {
+            return dataSource -> {
+                HikariDataSource hikari = unwrapHikari(dataSource);
+                return hikari != null ? new HikariDataSourcePoolMetadata(hikari) : null;
+            };
+        }
+
+        @Autowired
+        void bindHikariMetrics(Collection<DataSource> dataSources, ObjectProvider<MeterRegistry> registry) {
+            MeterRegistry meters = registry.getIfAvailable();
+            if (meters == null) {
+                return;
+            }
+            for (DataSource dataSource : dataSources) {
+                HikariDataSource hikari = unwrapHikari(dataSource);
+                if (hikari != null && hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meters));
+                }
+            }
+        }
+
+        private static HikariDataSource unwrapHikari(DataSource dataSource) {
+            if (dataSource instanceof HikariDataSource) {
+                // not wrapped, Spring Boot binds it itself
+                return null;
+            }
+            try {
+                return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class)
+                    : null;
+            } catch (SQLException ex) {
+                return null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Wrappers around a data source, its connections, statements and result sets that report executed statements and
+ * read rows to {@link QueryCounter}. The data source itself is a {@link DelegatingDataSource}, so that
+ * {@link DataSource#unwrap(Class)} still reaches the pool; connections, statements and result sets are JDK proxies.
+ * <p>
+ * Only statements created while the current thread is counting are wrapped, so connections used outside of counted
+ * requests (startup, batch jobs, background threads) pay for one extra proxy call per statement and nothing per
+ * row.
+ * </p>
+ */
+final class QueryCountingDataSource {
+
+    private QueryCountingDataSource() {
+    }
+
+    static DataSource wrap(DataSource dataSource) {
+        return new CountingDataSource(dataSource);
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return proxy(new Class<?>[] { Connection.class }, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement && QueryCounter.isCounting()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrapStatement(method.getReturnType(), (Statement) result, sql);
+            }
+            return result;
+        });
+    }
+
+    private static Object wrapStatement(Class<?> type, Statement statement, String preparedSql) {
+        return proxy(new Class<?>[] { type }, statement, (target, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                Object result = invoke(target, method, args);
+                return method.getName().equals("getResultSet") && result != null
+                    ? wrapResultSet((ResultSet) result) : result;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(target, method, args);
+            } finally {
+                QueryCounter.statement(sql, System.nanoTime() - start);
+            }
+            return result instanceof ResultSet ? wrapResultSet((ResultSet) result) : result;
+        });
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet) {
+        return proxy(new Class<?>[] { ResultSet.class }, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                QueryCounter.row();
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?>[] types, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            return handler.invoke(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), types, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    /**
+     * Closeable, as the context closes the pool through the wrapper.
+     */
+    private static final class CountingDataSource extends DelegatingDataSource implements Closeable {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrapConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrapConnection(super.getConnection(username, password));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (getTargetDataSource() instanceof Closeable) {
+                ((Closeable) getTargetDataSource()).close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+}
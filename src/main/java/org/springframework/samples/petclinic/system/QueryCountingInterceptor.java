@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Counts the SQL statements of every request handled by a controller method and publishes them per handler, tagged
+ * like <code>handler=OwnerController.showOwner</code>:
+ * <ul>
+ * <li><code>petclinic.sql.statements</code>: statements per request</li>
+ * <li><code>petclinic.sql.rows</code>: rows read per request</li>
+ * <li><code>petclinic.sql.time</code>: time spent executing statements per request</li>
+ * <li><code>petclinic.sql.repeated</code>: statements executed repeatedly within a request, each also logged as a
+ * probable N+1 select</li>
+ * </ul>
+ * Statements executed after an asynchronous request has been started, for example while streaming a response body,
+ * run on another thread and are not counted.
+ */
+class QueryCountingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountingInterceptor.class);
+
+    private static final String STATS_ATTRIBUTE = QueryCountingInterceptor.class.getName() + ".stats";
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private final int repeatThreshold;
+
+    QueryCountingInterceptor(ObjectProvider<MeterRegistry> registry, int repeatThreshold) {
+        this.registry = registry;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+            request.setAttribute(STATS_ATTRIBUTE, QueryCounter.begin());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        QueryStats stats = (QueryStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats != null) {
+            request.removeAttribute(STATS_ATTRIBUTE);
+            QueryCounter.end(stats);
+            record((HandlerMethod) handler, stats);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        afterConcurrentHandlingStarted(request, response, handler);
+    }
+
+    private void record(HandlerMethod handler, QueryStats stats) {
+        String name = handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+        MeterRegistry registry = this.registry.getIfAvailable();
+        if (registry != null) {
+            registry.summary("petclinic.sql.statements", "handler", name).record(stats.getStatements());
+            registry.summary("petclinic.sql.rows", "handler", name).record(stats.getRows());
+            registry.timer("petclinic.sql.time", "handler", name).record(stats.getElapsedNanos(),
+                TimeUnit.NANOSECONDS);
+        }
+        Map<String, Integer> repeated = stats.getRepeated(this.repeatThreshold);
+        if (repeated.isEmpty()) {
+            return;
+        }
+        if (registry != null) {
+            registry.counter("petclinic.sql.repeated", "handler", name).increment(repeated.size());
+        }
+        for (Map.Entry<String, Integer> statement : repeated.entrySet()) {
+            logger.warn("{} executed the same statement {} times, probably an N+1 select: {}", name,
+                statement.getValue(), statement.getKey());
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * SQL statements executed, rows read and time spent in the database while counting with {@link QueryCounter}, with
+ * the number of executions of each distinct statement.
+ * <p>
+ * Tests use it to hold a page to its query budget, for example
+ * <code>QueryCounter.count(() -&gt; mvc.perform(get("/owners/1"))).assertStatementsAtMost(3)</code>.
+ * </p>
+ */
+public final class QueryStats {
+
+    private int statements;
+
+    private long rows;
+
+    private long elapsedNanos;
+
+    private final Map<String, Integer> executions = new LinkedHashMap<>();
+
+    void statement(String sql, long nanos) {
+        this.statements++;
+        this.elapsedNanos += nanos;
+        if (sql != null) {
+            this.executions.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void row() {
+        this.rows++;
+    }
+
+    /**
+     * @return the number of statements executed, a JDBC batch counting as one
+     */
+    public int getStatements() {
+        return this.statements;
+    }
+
+    /**
+     * @return the number of rows read from result sets
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return the time spent executing statements, not including reading their results
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * @return the executed statements in order of first execution, with how many times each was executed
+     */
+    public Map<String, Integer> getExecutions() {
+        return this.executions;
+    }
+
+    /**
+     * @param threshold the number of executions from which a statement counts as repeated
+     * @return the statements executed at least <code>threshold</code> times, the usual sign of an N+1 select
+     */
+    public Map<String, Integer> getRepeated(int threshold) {
+        return this.executions.entrySet().stream().filter(execution -> execution.getValue() >= threshold)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * @param budget the maximum number of statements
+     * @return these statistics, for chaining
+     * @throws AssertionError listing the executed statements if more than <code>budget</code> were executed
+     */
+    public QueryStats assertStatementsAtMost(int budget) {
+        if (this.statements > budget) {
+            throw new AssertionError("Expected at most " + budget + " SQL statements but " + this);
+        }
+        return this;
+    }
+
+    /**
+     * @param threshold the number of executions from which a statement counts as repeated
+     * @return these statistics, for chaining
+     * @throws AssertionError listing the repeated statements if a statement was executed <code>threshold</code> times
+     *         or more
+     */
+    public QueryStats assertNoRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = getRepeated(threshold);
+        if (!repeated.isEmpty()) {
+            throw new AssertionError("Expected no statement executed " + threshold + " times or more but "
+                + describe(repeated));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return this.statements + " statements, " + this.rows + " rows in "
+            + TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos) + " ms: " + describe(this.executions);
+    }
+
+    private static String describe(Map<String, Integer> executions) {
+        return executions.entrySet().stream().map(execution -> execution.getValue() + " x " + execution.getKey())
+            .collect(Collectors.joining("\n  ", "\n  ", ""));
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.vet.VetsChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk-inserts a large, synthetic data set on startup when the <code>datagen</code> profile is active, for
+ * benchmarks and load tests. Works on both the <code>hsqldb</code> and the <code>mysql</code> schema.
+ * <p>
+ * Rows are written with batched JDBC, one transaction per batch of owners together with their pets and visits, so
+ * memory use does not depend on the size of the data set. The same {@link SampleDataProperties#getSeed() seed}
+ * always produces the same rows; ids continue after the highest id already present in each table, and the id
+ * sequences are moved past the inserted rows afterwards.
+ * </p>
+ * For example: <code>./mvnw spring-boot:run -Dspring-boot.run.profiles=production,datagen</code>
+ */
+@Component
+@Profile("datagen")
+@EnableConfigurationProperties(SampleDataProperties.class)
+class SampleDataGenerator implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SampleDataGenerator.class);
+
+    private static final String INSERT_OWNER =
+        "INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PET =
+        "INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_VISIT =
+        "INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_VET = "INSERT INTO vets (id, first_name, last_name) VALUES (?, ?, ?)";
+
+    private static final String INSERT_VET_SPECIALTY =
+        "INSERT INTO vet_specialties (vet_id, specialty_id) VALUES (?, ?)";
+
+    /**
+     * Increment of the id sequences, see <code>BaseEntity</code>.
+     */
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    /**
+     * Fixed reference date for birth and visit dates, so that the generated rows do not depend on the current date.
+     */
+    private static final LocalDate REFERENCE_DATE = LocalDate.of(2018, 1, 1);
+
+    private static final String[] FIRST_NAMES = { "James", "Mary", "John", "Patricia", "Robert", "Jennifer",
+        "Michael", "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+        "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark",
+        "Margaret", "Paul", "Sandra", "Steven", "Ashley", "Andrew", "Emily", "Kenneth", "Donna", "Joshua", "Carol" };
+
+    private static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+        "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+        "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez",
+        "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres",
+        "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell",
+        "Carter", "Roberts", "Franklin", "Coleman", "Black", "Escobito", "Schroeder", "Estaban", "McTavish" };
+
+    private static final String[] STREETS = { "Liberty St.", "Cardinal Ave.", "Commerce St.", "Friendly St.",
+        "Fair Way", "Lake St.", "Oak Blvd.", "Maple St.", "Blackhawk Trail", "Independence La.", "Main St.",
+        "Park Ave.", "Elm St.", "Washington Ave.", "Lincoln Rd." };
+
+    private static final String[] CITIES = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona",
+        "Waunakee", "Middleton", "Verona", "Fitchburg", "Cottage Grove", "DeForest", "Oregon", "Stoughton" };
+
+    private static final String[] PET_NAMES = { "Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha",
+        "Max", "Lucky", "Mulligan", "Freddy", "Sly", "Bella", "Charlie", "Luna", "Lucy", "Cooper", "Daisy", "Milo",
+        "Oliver", "Bailey", "Sadie", "Buddy", "Molly", "Rocky", "Maggie", "Bear", "Chloe", "Duke", "Zoe" };
+
+    private static final String[] VISIT_DESCRIPTIONS = { "rabies shot", "neutered", "spayed", "annual checkup",
+        "dental cleaning", "vaccination", "skin allergy", "ear infection", "limping", "weight check" };
+
+    private final JdbcTemplate jdbc;
+
+    private final TransactionTemplate transactions;
+
+    private final SampleDataProperties properties;
+
+    private final ApplicationEventPublisher events;
+
+    SampleDataGenerator(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                        SampleDataProperties properties, ApplicationEventPublisher events) {
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.events = events;
+    }
+
+    @Override
+    public void run(String... args) {
+        generate();
+    }
+
+    void generate() {
+        Random random = new Random(this.properties.getSeed());
+        List<Integer> types = this.jdbc.queryForList("SELECT id FROM types ORDER BY id", Integer.class);
+        List<Integer> specialties = this.jdbc.queryForList("SELECT id FROM specialties ORDER BY id", Integer.class);
+        if (types.isEmpty()) {
+            throw new IllegalStateException("No pet types found, the database must be initialized first");
+        }
+
+        long start = System.nanoTime();
+        long rows = insertVets(random, specialties) + insertOwners(random, types);
+        advanceSequence("vet_seq", "vets");
+        advanceSequence("owner_seq", "owners");
+        advanceSequence("pet_seq", "pets");
+        advanceSequence("visit_seq", "visits");
+        this.events.publishEvent(new VetsChangedEvent(this));
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("Inserted {} rows in {} ms ({} rows/s)", rows, millis, rows * 1000 / millis);
+    }
+
+    private long insertVets(Random random, List<Integer> specialties) {
+        int vetId = nextId("vets");
+        List<Object[]> vets = new ArrayList<>();
+        List<Object[]> vetSpecialties = new ArrayList<>();
+        for (int i = 0; i < this.properties.getVets(); i++, vetId++) {
+            vets.add(new Object[] { vetId, pick(random, FIRST_NAMES), pick(random, LAST_NAMES) });
+            int count = specialties.isEmpty() ? 0 : random.nextInt(3);
+            int first = specialties.isEmpty() ? 0 : random.nextInt(specialties.size());
+            for (int s = 0; s < Math.min(count, specialties.size()); s++) {
+                vetSpecialties.add(new Object[] { vetId, specialties.get((first + s) % specialties.size()) });
+            }
+        }
+        this.transactions.execute(status -> {
+            batchUpdate(INSERT_VET, vets);
+            batchUpdate(INSERT_VET_SPECIALTY, vetSpecialties);
+            return null;
+        });
+        return vets.size() + vetSpecialties.size();
+    }
+
+    private long insertOwners(Random random, List<Integer> types) {
+        int ownerId = nextId("owners");
+        int petId = nextId("pets");
+        int visitId = nextId("visits");
+        long rows = 0;
+        int remaining = this.properties.getOwners();
+        while (remaining > 0) {
+            int count = Math.min(this.properties.getBatchSize(), remaining);
+            List<Object[]> owners = new ArrayList<>(count);
+            List<Object[]> pets = new ArrayList<>(count * this.properties.getPetsPerOwner());
+            List<Object[]> visits = new ArrayList<>(pets.size() * this.properties.getVisitsPerPet());
+            for (int i = 0; i < count; i++, ownerId++) {
+                owners.add(new Object[] { ownerId, pick(random, FIRST_NAMES), pick(random, LAST_NAMES),
+                    (1 + random.nextInt(9999)) + " " + pick(random, STREETS), pick(random, CITIES),
+                    String.format("608%07d", random.nextInt(10_000_000)) });
+                for (int p = 0; p < this.properties.getPetsPerOwner(); p++, petId++) {
+                    pets.add(new Object[] { petId, pick(random, PET_NAMES),
+                        Date.valueOf(REFERENCE_DATE.minusDays(random.nextInt(15 * 365))),
+                        types.get(random.nextInt(types.size())), ownerId });
+                    for (int v = 0; v < this.properties.getVisitsPerPet(); v++, visitId++) {
+                        visits.add(new Object[] { visitId, petId,
+                            Date.valueOf(REFERENCE_DATE.minusDays(random.nextInt(5 * 365))),
+                            pick(random, VISIT_DESCRIPTIONS) });
+                    }
+                }
+            }
+            this.transactions.execute(status -> {
+                batchUpdate(INSERT_OWNER, owners);
+                batchUpdate(INSERT_PET, pets);
+                batchUpdate(INSERT_VISIT, visits);
+                return null;
+            });
+            rows += owners.size() + pets.size() + visits.size();
+            remaining -= count;
+            logger.info("Inserted {} of {} owners", this.properties.getOwners() - remaining,
+                this.properties.getOwners());
+        }
+        return rows;
+    }
+
+    private void batchUpdate(String sql, List<Object[]> rows) {
+        int batchSize = this.properties.getBatchSize();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            this.jdbc.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    /**
+     * Move the id sequence of the given table so that the ids handed out by Hibernate's pooled optimizer start right
+     * after the highest id in the table.
+     */
+    private void advanceSequence(String sequence, String table) {
+        long next = nextId(table) - 1 + SEQUENCE_INCREMENT;
+        String product = this.jdbc.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (product.toLowerCase().contains("mysql")) {
+            // MySQL has no sequences, Hibernate uses a single-row table instead
+            this.jdbc.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next);
+        } else {
+            this.jdbc.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+        }
+    }
+
+    private int nextId(String table) {
+        Integer max = this.jdbc.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+}
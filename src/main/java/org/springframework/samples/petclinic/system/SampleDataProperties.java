@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and seed of the data set inserted by {@link SampleDataGenerator}, bound from <code>petclinic.datagen.*</code>.
+ */
+@ConfigurationProperties(prefix = "petclinic.datagen")
+public class SampleDataProperties {
+
+    /**
+     * Number of owners to insert.
+     */
+    private int owners = 100_000;
+
+    /**
+     * Number of pets inserted for every owner.
+     */
+    private int petsPerOwner = 2;
+
+    /**
+     * Number of visits inserted for every pet.
+     */
+    private int visitsPerPet = 5;
+
+    /**
+     * Number of vets to insert, each with up to two of the existing specialties.
+     */
+    private int vets = 100;
+
+    /**
+     * Seed of the random generator; the same seed always produces the same rows.
+     */
+    private long seed = 42;
+
+    /**
+     * Number of rows per JDBC batch; each batch of owners is inserted with its pets and visits in one transaction.
+     */
+    private int batchSize = 1000;
+
+    public int getOwners() {
+        return this.owners;
+    }
+
+    public void setOwners(int owners) {
+        this.owners = owners;
+    }
+
+    public int getPetsPerOwner() {
+        return this.petsPerOwner;
+    }
+
+    public void setPetsPerOwner(int petsPerOwner) {
+        this.petsPerOwner = petsPerOwner;
+    }
+
+    public int getVisitsPerPet() {
+        return this.visitsPerPet;
+    }
+
+    public void setVisitsPerPet(int visitsPerPet) {
+        this.visitsPerPet = visitsPerPet;
+    }
+
+    public int getVets() {
+        return this.vets;
+    }
+
+    public void setVets(int vets) {
+        this.vets = vets;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+}
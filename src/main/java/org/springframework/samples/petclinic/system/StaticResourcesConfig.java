@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Arrays;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.CssLinkResourceTransformer;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+/**
+ * Serves <code>/resources/**</code> and the webjars under content-hashed names, like
+ * <code>/webjars/jquery/jquery.min-&lt;md5&gt;.js</code>. Links built with <code>@{...}</code> in the templates and
+ * <code>url(...)</code> references in style sheets are rewritten to those names, fingerprinted requests are served
+ * as immutable by {@link FingerprintedResourcesFilter} and compressible assets are gzipped once by
+ * {@link CompressingResourceTransformer}. Requests for the plain names still work, but are revalidated.
+ * <p>
+ * Registered before the Spring Boot defaults, which then leave <code>/webjars/**</code> alone.
+ */
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class StaticResourcesConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        fingerprint(registry.addResourceHandler("/resources/**").addResourceLocations("classpath:/static/resources/"));
+        fingerprint(registry.addResourceHandler("/webjars/**")
+            .addResourceLocations("classpath:/META-INF/resources/webjars/"));
+    }
+
+    private static void fingerprint(ResourceHandlerRegistration registration) {
+        // the chain's own transformer cache ignores Accept-Encoding, so CompressingResourceTransformer caches instead;
+        // the link rewriting is registered after it, as the chain would otherwise insert it first and the gzipped
+        // style sheets would keep their plain links
+        registration.setCacheControl(CacheControl.noCache())
+            .resourceChain(false)
+            .addResolver(new CachingResourceResolver(new ConcurrentMapCache("static-resources")))
+            .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
+            .addTransformer(new CompressingResourceTransformer())
+            .addTransformer(new CssLinkResourceTransformer());
+    }
+
+    @Bean
+    FilterRegistrationBean<FingerprintedResourcesFilter> fingerprintedResourcesFilter() {
+        FilterRegistrationBean<FingerprintedResourcesFilter> registration =
+            new FilterRegistrationBean<>(new FingerprintedResourcesFilter());
+        registration.setUrlPatterns(Arrays.asList("/resources/*", "/webjars/*"));
+        return registration;
+    }
+
+}
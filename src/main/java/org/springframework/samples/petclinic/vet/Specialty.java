@@ -17,9 +17,12 @@ package org.springframework.samples.petclinic.vet;
 
 import java.io.Serializable;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.model.NamedEntity;
 
 /**
@@ -29,6 +32,8 @@ import org.springframework.samples.petclinic.model.NamedEntity;
  */
 @Entity
 @Table(name = "specialties")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialties")
 public class Specialty extends NamedEntity implements Serializable {
 
 }
@@ -15,12 +15,12 @@
  */
 package org.springframework.samples.petclinic.vet;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
@@ -29,9 +29,12 @@ import javax.persistence.ManyToMany;
 import javax.persistence.Table;
 import javax.xml.bind.annotation.XmlElement;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SortComparator;
+import org.springframework.samples.petclinic.model.ChildOrder;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.model.SortedSetView;
 
 /**
  * Simple JavaBean domain object representing a veterinarian.
@@ -43,29 +46,38 @@ import org.springframework.samples.petclinic.model.Person;
  */
 @Entity
 @Table(name = "vets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet-entities")
 public class Vet extends Person {
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet-specialties")
     @JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"), inverseJoinColumns = @JoinColumn(name = "specialty_id"))
-    private Set<Specialty> specialties;
+    @SortComparator(SpecialtiesByName.class)
+    private SortedSet<Specialty> specialties;
 
-    protected Set<Specialty> getSpecialtiesInternal() {
+    private transient List<Specialty> specialtiesView;
+
+    protected SortedSet<Specialty> getSpecialtiesInternal() {
         if (this.specialties == null) {
-            this.specialties = new HashSet<>();
+            this.specialties = new TreeSet<>(new SpecialtiesByName());
         }
         return this.specialties;
     }
 
-    protected void setSpecialtiesInternal(Set<Specialty> specialties) {
+    protected void setSpecialtiesInternal(SortedSet<Specialty> specialties) {
         this.specialties = specialties;
     }
 
+    /**
+     * @return read-only view of the specialties, sorted by name
+     */
     @XmlElement
     public List<Specialty> getSpecialties() {
-        List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-        PropertyComparator.sort(sortedSpecs,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedSpecs);
+        if (this.specialtiesView == null) {
+            this.specialtiesView = new SortedSetView<>(this::getSpecialtiesInternal);
+        }
+        return this.specialtiesView;
     }
 
     public int getNrOfSpecialties() {
@@ -76,4 +88,17 @@ public class Vet extends Person {
         getSpecialtiesInternal().add(specialty);
     }
 
+    /**
+     * Specialties by name, ignoring case.
+     */
+    public static final class SpecialtiesByName extends ChildOrder<Specialty> {
+
+        private static final Comparator<String> NAMES = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+        @Override
+        protected int compareProperty(Specialty left, Specialty right) {
+            return NAMES.compare(left.getName(), right.getName());
+        }
+    }
+
 }
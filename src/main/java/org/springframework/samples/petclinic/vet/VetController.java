@@ -15,13 +15,35 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.View;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
 
-import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 /**
+ * Serves the vet list as HTML, JSON and XML. Each representation is rendered once per vet data version and then
+ * served from {@link VetResponseCache} as bytes, with ETag support.
+ *
  * @author Juergen Hoeller
  * @author Mark Fisher
  * @author Ken Krebs
@@ -30,29 +52,91 @@ import java.util.Map;
 @Controller
 class VetController {
 
+    private static final List<MediaType> RESOURCE_TYPES = Arrays.asList(MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML);
+
     private final VetRepository vets;
+    private final VetResponseCache responses;
+    private final ThymeleafViewResolver viewResolver;
+    private final HttpMessageConverters messageConverters;
+    private final ContentNegotiationManager contentNegotiationManager;
 
-    public VetController(VetRepository clinicService) {
+    public VetController(VetRepository clinicService, VetResponseCache responses, ThymeleafViewResolver viewResolver,
+                         HttpMessageConverters messageConverters, ContentNegotiationManager contentNegotiationManager) {
         this.vets = clinicService;
+        this.responses = responses;
+        this.viewResolver = viewResolver;
+        this.messageConverters = messageConverters;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
     @GetMapping("/vets.html")
-    public String showVetList(Map<String, Object> model) {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for Object-Xml mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        model.put("vets", vets);
-        return "vets/vetList";
+    public ResponseEntity<byte[]> showVetList(NativeWebRequest webRequest, HttpServletRequest request,
+                                              HttpServletResponse response, Locale locale) throws Exception {
+        return this.responses.serve("html-" + locale.toLanguageTag(), webRequest, () -> {
+            View view = this.viewResolver.resolveViewName("vets/vetList", locale);
+            ContentCachingResponseWrapper content = new ContentCachingResponseWrapper(response);
+            // the page only shows names, so it is rendered from read-only summaries rather than entities
+            view.render(Collections.singletonMap("vets", this.vets.findAllSummaries()), request, content);
+            MediaType contentType = content.getContentType() != null
+                ? MediaType.parseMediaType(content.getContentType()) : MediaType.TEXT_HTML;
+            return new VetResponseCache.Rendered(contentType, content.getContentAsByteArray());
+        });
     }
 
     @GetMapping({ "/vets" })
-    public @ResponseBody Vets showResourcesVetList() {
+    public ResponseEntity<byte[]> showResourcesVetList(NativeWebRequest webRequest) throws Exception {
+        MediaType mediaType = negotiate(webRequest);
+        return this.responses.serve(mediaType.getSubtype(), webRequest, () -> write(findVets(), mediaType));
+    }
+
+    private Vets findVets() {
         // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for JSon/Object mapping
+        // objects so it is simpler for JSon/Object-Xml mapping
         Vets vets = new Vets();
         vets.getVetList().addAll(this.vets.findAll());
         return vets;
     }
 
+    private MediaType negotiate(NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> acceptable = new ArrayList<>(this.contentNegotiationManager.resolveMediaTypes(webRequest));
+        MediaType.sortBySpecificityAndQuality(acceptable);
+        for (MediaType accepted : acceptable) {
+            for (MediaType produced : RESOURCE_TYPES) {
+                if (accepted.isCompatibleWith(produced)) {
+                    return produced;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(RESOURCE_TYPES);
+    }
+
+    @SuppressWarnings("unchecked")
+    private VetResponseCache.Rendered write(Vets vets, MediaType mediaType) throws Exception {
+        for (HttpMessageConverter<?> converter : this.messageConverters.getConverters()) {
+            if (converter.canWrite(Vets.class, mediaType)) {
+                BufferedOutputMessage message = new BufferedOutputMessage();
+                ((HttpMessageConverter<Vets>) converter).write(vets, mediaType, message);
+                return new VetResponseCache.Rendered(message.getHeaders().getContentType(), message.body.toByteArray());
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(RESOURCE_TYPES);
+    }
+
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        @Override
+        public OutputStream getBody() {
+            return this.body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.headers;
+        }
+    }
+
 }
@@ -16,9 +16,14 @@
 package org.springframework.samples.petclinic.vet;
 
 import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -40,7 +45,30 @@ public interface VetRepository extends Repository<Vet, Integer> {
      */
     @Transactional(readOnly = true)
     @Cacheable("vets")
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "reference-queries") })
     Collection<Vet> findAll() throws DataAccessException;
 
+    /**
+     * Retrieve one {@link VetSummary} row per vet and specialty, vets without specialties having a single row without
+     * specialty name. Use {@link #findAllSummaries()} to get one summary per vet.
+     *
+     * @return the rows, ordered by vet id and specialty name, ignoring case
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.vet.VetSummary(vet.id, vet.firstName, vet.lastName, "
+        + "specialty.name) FROM Vet vet left join vet.specialties specialty ORDER BY vet.id, LOWER(specialty.name)")
+    @QueryHints(@QueryHint(name = "org.hibernate.readOnly", value = "true"))
+    @Transactional(readOnly = true)
+    List<VetSummary> findAllSummaryRows() throws DataAccessException;
+
+    /**
+     * Retrieve read-only summaries of all vets, with the names of their specialties.
+     *
+     * @return the summaries, ordered by vet id
+     */
+    default List<VetSummary> findAllSummaries() throws DataAccessException {
+        return VetSummary.group(findAllSummaryRows());
+    }
+
 
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+
+/**
+ * Holds the rendered vet list responses as bytes, one per representation (HTML per supported locale, JSON, XML),
+ * together with a strong ETag derived from the vet data version.
+ * <p>
+ * Vets are not edited through the application; publish a {@link VetsChangedEvent} after changing vet data so that
+ * clients get a new ETag and the next request renders fresh content. The version starts at the startup time so that
+ * ETags issued by a previous run are never mistaken for current ones.
+ * </p>
+ */
+@Component
+class VetResponseCache {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    private final ConcurrentMap<String, Rendered> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Discard all rendered responses and move to a new vet data version. Also evicts the cached vets.
+     */
+    @EventListener(VetsChangedEvent.class)
+    @CacheEvict(value = "vets", allEntries = true)
+    public void invalidate() {
+        this.version.incrementAndGet();
+        this.responses.clear();
+    }
+
+    long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Serve the given representation: answer a conditional request with 304 without rendering anything, otherwise
+     * return the cached bytes, rendering them first if the cached copy is missing or stale.
+     * @param representation the key of the representation, also part of the ETag; there must be a bounded number
+     * of them, for example one per supported locale rather than one per requested locale
+     * @param request the current request, used to check <code>If-None-Match</code>
+     * @param renderer renders the representation on a cache miss
+     * @return the response, or <code>null</code> if a 304 has already been prepared
+     */
+    ResponseEntity<byte[]> serve(String representation, NativeWebRequest request, Renderer renderer)
+        throws Exception {
+        // the representation depends on both headers, 304 responses included
+        request.getNativeResponse(HttpServletResponse.class)
+            .setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_LANGUAGE);
+        long current = this.version.get();
+        String etag = "\"vets-" + Long.toHexString(current) + "-" + representation + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Rendered rendered = this.responses.get(representation);
+        if (rendered == null || rendered.version != current) {
+            rendered = renderer.render();
+            rendered = new Rendered(current, rendered.contentType, rendered.body);
+            this.responses.put(representation, rendered);
+        }
+        return ResponseEntity.ok().eTag(etag).contentType(rendered.contentType).body(rendered.body);
+    }
+
+    @FunctionalInterface
+    interface Renderer {
+
+        Rendered render() throws Exception;
+    }
+
+    static final class Rendered {
+
+        private final long version;
+
+        private final MediaType contentType;
+
+        private final byte[] body;
+
+        Rendered(MediaType contentType, byte[] body) {
+            this(0, contentType, body);
+        }
+
+        private Rendered(long version, MediaType contentType, byte[] body) {
+            this.version = version;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+}
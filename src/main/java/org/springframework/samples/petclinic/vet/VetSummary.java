@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.samples.petclinic.model.ProjectedRows;
+
+/**
+ * Immutable read-only view of a {@link Vet} with the names of its specialties, as shown in the vet list. Loaded with
+ * a constructor projection, so no managed entities or dirty-checking snapshots are created.
+ */
+public final class VetSummary {
+
+    private final Integer id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final List<String> specialties;
+
+    /**
+     * Create a summary from one projected row: a vet with at most one specialty name.
+     */
+    public VetSummary(Integer id, String firstName, String lastName, String specialty) {
+        this(id, firstName, lastName,
+            specialty == null ? Collections.<String>emptyList() : Collections.singletonList(specialty));
+    }
+
+    private VetSummary(Integer id, String firstName, String lastName, List<String> specialties) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.specialties = specialties;
+    }
+
+    /**
+     * Merge projected rows, one per vet and specialty, into one summary per vet.
+     * @param rows the rows, with the specialties of each vet in the order they should be listed
+     * @return the summaries, in the order in which their vets first appear
+     */
+    static List<VetSummary> group(List<VetSummary> rows) {
+        return ProjectedRows.group(rows, VetSummary::getId, VetSummary::merge);
+    }
+
+    private static VetSummary merge(List<VetSummary> vetRows) {
+        VetSummary first = vetRows.get(0);
+        return new VetSummary(first.id, first.firstName, first.lastName,
+            ProjectedRows.children(vetRows, row -> row.specialties));
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    /**
+     * @return the names of the vet's specialties, sorted
+     */
+    public List<String> getSpecialties() {
+        return this.specialties;
+    }
+
+}
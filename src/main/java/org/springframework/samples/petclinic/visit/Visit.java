@@ -23,6 +23,7 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.BaseEntity;
@@ -43,6 +44,7 @@ public class Visit extends BaseEntity {
     private Date date;
 
     @NotEmpty
+    @Size(max = 255)
     @Column(name = "description")
     private String description;
 
@@ -56,6 +58,16 @@ public class Visit extends BaseEntity {
         this.date = new Date();
     }
 
+    /**
+     * Creates an unmanaged copy of a stored visit, for read-only query results
+     */
+    public Visit(Integer id, Integer petId, Date date, String description) {
+        setId(id);
+        this.petId = petId;
+        this.date = date;
+        this.description = description;
+    }
+
     public Date getDate() {
         return this.date;
     }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the asynchronous visit intake, bound from <code>petclinic.visits.intake.*</code>.
+ *
+ * @see VisitIntakeQueue
+ */
+@ConfigurationProperties(prefix = "petclinic.visits.intake")
+public class VisitIntakeProperties {
+
+    /**
+     * Whether new visits are queued and persisted in batches by a background writer instead of being saved in the
+     * request thread.
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum number of accepted visits waiting to be persisted.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * How long a request waits for room in a full queue before the visit is rejected.
+     */
+    private Duration offerTimeout = Duration.ofMillis(500);
+
+    /**
+     * Maximum number of visits persisted in one transaction.
+     */
+    private int batchSize = 50;
+
+    /**
+     * Write-ahead journal of accepted visits, replayed at startup.
+     */
+    private Path journal = Paths.get("visit-intake.journal");
+
+    /**
+     * File receiving the visits refused by validation or by the database, in the journal record format.
+     */
+    private Path deadLetters = Paths.get("visit-intake.dead-letters");
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getOfferTimeout() {
+        return this.offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Path getJournal() {
+        return this.journal;
+    }
+
+    public void setJournal(Path journal) {
+        this.journal = journal;
+    }
+
+    public Path getDeadLetters() {
+        return this.deadLetters;
+    }
+
+    public void setDeadLetters(Path deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+}
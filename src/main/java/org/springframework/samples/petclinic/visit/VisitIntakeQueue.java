@@ -0,0 +1,367 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ValidationException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous intake of new visits, enabled with <code>petclinic.visits.intake.enabled=true</code>. Accepted visits
+ * are written to a {@link VisitJournal} and queued; a single writer thread persists them in batched transactions
+ * through {@link VisitRepository#saveAll(Iterable)}.
+ * <p>
+ * The queue is bounded: when it is full, {@link #submit(Visit)} waits up to the configured offer timeout and then
+ * rejects the visit, so that a burst of registrations slows callers down instead of exhausting memory. Visits are
+ * visible in the clinic once the writer has persisted them, usually within milliseconds.
+ * </p>
+ * <p>
+ * The journal is forced to disk once per group of concurrent submissions rather than once per visit: a submitter
+ * forces everything appended so far, and the submitters that appended in the meantime return without forcing again.
+ * </p>
+ * <p>
+ * A batch refused by validation or by a database constraint is retried one visit at a time, and the visits refused
+ * again are moved to the dead-letter file, so that one bad visit can neither block the queue nor the next start. Other
+ * failures, such as an unavailable database, are retried until they go away.
+ * </p>
+ * <p>
+ * Metrics: <code>petclinic.visits.intake.queue</code> (visits waiting), <code>petclinic.visits.intake.commit</code>
+ * (batch transaction time), <code>petclinic.visits.intake.batch</code> (visits per batch),
+ * <code>petclinic.visits.intake.sync</code> (visits per journal force) and <code>petclinic.visits.intake.rejected</code>.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "petclinic.visits.intake", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(VisitIntakeProperties.class)
+public class VisitIntakeQueue implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitIntakeQueue.class);
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final VisitRepository visits;
+
+    private final VisitIntakeProperties properties;
+
+    private final BlockingQueue<Journaled> queue = new LinkedBlockingQueue<>();
+
+    private final Semaphore capacity;
+
+    private final Timer commitTimer;
+
+    private final DistributionSummary batchSizes;
+
+    private final DistributionSummary syncSizes;
+
+    private final Counter rejected;
+
+    private VisitJournal journal;
+
+    private final Object syncLock = new Object();
+
+    /**
+     * Sequence number up to which the journal is forced to disk, guarded by {@link #syncLock}.
+     */
+    private long syncedSequence;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    public VisitIntakeQueue(VisitRepository visits, VisitIntakeProperties properties, MeterRegistry registry) {
+        this.visits = visits;
+        this.properties = properties;
+        this.capacity = new Semaphore(properties.getQueueCapacity());
+        registry.gauge("petclinic.visits.intake.queue", this.queue, BlockingQueue::size);
+        this.commitTimer = registry.timer("petclinic.visits.intake.commit");
+        this.batchSizes = registry.summary("petclinic.visits.intake.batch");
+        this.syncSizes = registry.summary("petclinic.visits.intake.sync");
+        this.rejected = registry.counter("petclinic.visits.intake.rejected");
+    }
+
+    /**
+     * Accept a validated visit for asynchronous persistence. The visit is on disk when this method returns
+     * <code>true</code>.
+     * @param visit the new visit
+     * @return <code>false</code> if the queue stayed full for the whole offer timeout and the visit was not accepted
+     * @throws UncheckedIOException if the visit could not be journaled; if only forcing the journal to disk failed,
+     * the visit is queued and may still be persisted
+     */
+    public boolean submit(Visit visit) {
+        if (!this.running) {
+            throw new IllegalStateException("Visit intake is not running");
+        }
+        if (visit.getPetId() == null || visit.getDate() == null) {
+            throw new IllegalArgumentException("A queued visit needs a pet and a date");
+        }
+        try {
+            if (!this.capacity.tryAcquire(this.properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                this.rejected.increment();
+                return false;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.rejected.increment();
+            return false;
+        }
+        long sequence;
+        try {
+            // journal order and queue order must be the same, so that a commit covers a prefix of the journal
+            synchronized (this.journal) {
+                sequence = this.journal.append(visit);
+                this.queue.add(new Journaled(visit, sequence));
+            }
+        } catch (IOException ex) {
+            this.capacity.release();
+            throw new UncheckedIOException("Could not journal visit", ex);
+        } catch (RuntimeException ex) {
+            this.capacity.release();
+            throw ex;
+        }
+        // queued now, so the writer releases the permit
+        try {
+            sync(sequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not force visit journal to disk", ex);
+        }
+        return true;
+    }
+
+    /**
+     * Wait until the journal is on disk up to the given sequence number. One submitter at a time forces the journal,
+     * covering every visit appended before it started, so the submitters waiting meanwhile are released by a single
+     * force instead of forcing one after the other.
+     */
+    private void sync(long sequence) throws IOException {
+        synchronized (this.syncLock) {
+            if (this.syncedSequence >= sequence) {
+                return;
+            }
+            long last;
+            synchronized (this.journal) {
+                last = this.journal.getLastSequence();
+            }
+            this.journal.force();
+            this.syncSizes.record(last - this.syncedSequence);
+            this.syncedSequence = last;
+        }
+    }
+
+    @Override
+    public void start() {
+        Map<Long, Visit> pending = new LinkedHashMap<>();
+        try {
+            this.journal = VisitJournal.open(this.properties.getJournal(), pending);
+            if (!pending.isEmpty()) {
+                logger.info("Replaying {} journaled visits from {}", pending.size(), this.properties.getJournal());
+                List<Journaled> replayed = new ArrayList<>(pending.size());
+                pending.forEach((sequence, visit) -> replayed.add(new Journaled(visit, sequence)));
+                for (int from = 0; from < replayed.size(); from += this.properties.getBatchSize()) {
+                    persist(new ArrayList<>(replayed.subList(from,
+                        Math.min(from + this.properties.getBatchSize(), replayed.size()))));
+                }
+            }
+            this.journal.commit(this.journal.getLastSequence());
+            this.syncedSequence = this.journal.getLastSequence();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open visit journal " + this.properties.getJournal(), ex);
+        }
+        this.running = true;
+        this.writer = new Thread(this::drain, "visit-intake-writer");
+        this.writer.start();
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        try {
+            this.writer.join();
+            this.journal.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.warn("Could not close visit journal", ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public int getPhase() {
+        // stop among the first lifecycle beans; the data source is closed later, so queued visits are drained
+        return Integer.MAX_VALUE - 1;
+    }
+
+    /**
+     * Writer loop: persist queued visits in batches until stopped and the queue is empty. A batch that failed for
+     * another reason than its content is retried; if the application stops first, its visits stay in the journal for
+     * the next start.
+     */
+    private void drain() {
+        List<Journaled> batch = new ArrayList<>(this.properties.getBatchSize());
+        while (this.running || !this.queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    Journaled first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    this.queue.drainTo(batch, this.properties.getBatchSize() - 1);
+                }
+                int size = batch.size();
+                try {
+                    persist(batch);
+                } finally {
+                    this.capacity.release(size - batch.size());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException ex) {
+                logger.error("Could not persist {} visits, retrying", batch.size(), ex);
+                if (!this.running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist the given visits and commit them in the journal, removing them from the list. If the batch is refused,
+     * its visits are persisted one by one and the refused ones dead-lettered. On any other failure the visits not
+     * committed yet are left in the list.
+     */
+    private void persist(List<Journaled> batch) throws IOException {
+        List<Visit> visits = new ArrayList<>(batch.size());
+        for (Journaled journaled : batch) {
+            visits.add(resetId(journaled.visit));
+        }
+        try {
+            this.commitTimer.record(() -> this.visits.saveAll(visits));
+        } catch (RuntimeException ex) {
+            if (!isRefused(ex)) {
+                throw ex;
+            }
+            logger.warn("Batch of {} visits refused, persisting them one by one", batch.size(), ex);
+            persistOneByOne(batch);
+            return;
+        }
+        this.batchSizes.record(batch.size());
+        commit(batch.get(batch.size() - 1).sequence);
+        batch.clear();
+    }
+
+    private void persistOneByOne(List<Journaled> batch) throws IOException {
+        for (Iterator<Journaled> iterator = batch.iterator(); iterator.hasNext(); ) {
+            Journaled journaled = iterator.next();
+            try {
+                this.visits.saveAll(Collections.singletonList(resetId(journaled.visit)));
+            } catch (RuntimeException ex) {
+                if (!isRefused(ex)) {
+                    throw ex;
+                }
+                logger.error("Visit {} refused, moving it to {}", journaled.sequence, this.properties.getDeadLetters(),
+                    ex);
+                VisitJournal.deadLetter(this.properties.getDeadLetters(), journaled.visit, journaled.sequence);
+            }
+            commit(journaled.sequence);
+            iterator.remove();
+        }
+    }
+
+    private void commit(long sequence) throws IOException {
+        synchronized (this.journal) {
+            this.journal.commit(sequence);
+        }
+    }
+
+    /**
+     * Queued visits are always new, but a rolled back attempt may have assigned them an id.
+     */
+    private static Visit resetId(Visit visit) {
+        visit.setId(null);
+        return visit;
+    }
+
+    /**
+     * @return whether the failure was caused by the content of the visits, so that retrying them cannot succeed
+     */
+    private static boolean isRefused(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ValidationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Journaled {
+
+        private final Visit visit;
+
+        private final long sequence;
+
+        Journaled(Visit visit, long sequence) {
+            this.visit = visit;
+            this.sequence = sequence;
+        }
+    }
+
+}
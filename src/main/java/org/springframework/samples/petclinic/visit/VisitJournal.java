@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of the visits accepted by {@link VisitIntakeQueue}. Every accepted visit is written and forced to
+ * disk before the request is answered; a commit record marks the visits persisted to the database. Visits after the
+ * last commit record are replayed at startup, so a crash loses no accepted visit, although a visit persisted just
+ * before a crash may be persisted twice.
+ * <p>
+ * Records are text lines: <code>V seq petId epochMillis base64(description)</code> and <code>C seq</code>. The file is
+ * truncated whenever everything written to it has been committed. Callers serialize appends and commits;
+ * {@link #force()} may run alongside them, so that visits are appended while earlier ones are forced to disk.
+ * </p>
+ */
+final class VisitJournal implements Closeable {
+
+    private final FileChannel channel;
+
+    private long lastSequence;
+
+    private long committedSequence;
+
+    private VisitJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open the journal, creating it if needed, and read the visits that were accepted but never committed.
+     * @param path the journal file
+     * @param pending receives the uncommitted visits by sequence number, oldest first
+     */
+    static VisitJournal open(Path path, Map<Long, Visit> pending) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        VisitJournal journal = new VisitJournal(FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE));
+        List<Long> sequences = new ArrayList<>();
+        List<Visit> visits = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(" ");
+            try {
+                if (fields.length == 5 && "V".equals(fields[0])) {
+                    Visit visit = new Visit();
+                    visit.setPetId(Integer.valueOf(fields[2]));
+                    visit.setDate(new Date(Long.parseLong(fields[3])));
+                    visit.setDescription(new String(Base64.getDecoder().decode(fields[4]), StandardCharsets.UTF_8));
+                    sequences.add(Long.valueOf(fields[1]));
+                    visits.add(visit);
+                } else if (fields.length == 2 && "C".equals(fields[0])) {
+                    journal.committedSequence = Math.max(journal.committedSequence, Long.parseLong(fields[1]));
+                }
+            } catch (IllegalArgumentException ex) {
+                // a record torn by a crash in the middle of a write, never acknowledged
+            }
+        }
+        for (int i = 0; i < visits.size(); i++) {
+            journal.lastSequence = Math.max(journal.lastSequence, sequences.get(i));
+            if (sequences.get(i) > journal.committedSequence) {
+                pending.put(sequences.get(i), visits.get(i));
+            }
+        }
+        journal.channel.position(journal.channel.size());
+        return journal;
+    }
+
+    /**
+     * Append an accepted visit. It is on disk once {@link #force()} is called afterwards.
+     * @return the sequence number of the visit
+     */
+    long append(Visit visit) throws IOException {
+        long sequence = this.lastSequence + 1;
+        write(record(visit, sequence));
+        this.lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Append a visit that can never be persisted to the given dead-letter file, in the journal record format, so that
+     * it can be corrected and moved back into a journal.
+     */
+    static void deadLetter(Path path, Visit visit, long sequence) throws IOException {
+        Files.write(path, (record(visit, sequence) + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+
+    private static String record(Visit visit, long sequence) {
+        String description = visit.getDescription() == null ? "" : visit.getDescription();
+        return "V " + sequence + " " + visit.getPetId() + " " + visit.getDate().getTime() + " "
+            + Base64.getEncoder().encodeToString(description.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Force all visits appended so far to disk.
+     */
+    void force() throws IOException {
+        this.channel.force(false);
+    }
+
+    /**
+     * Record that all visits up to the given sequence number have been persisted.
+     */
+    void commit(long sequence) throws IOException {
+        this.committedSequence = sequence;
+        if (sequence >= this.lastSequence) {
+            this.channel.truncate(0);
+            this.channel.position(0);
+            this.channel.force(true);
+        } else {
+            write("C " + sequence);
+            this.channel.force(false);
+        }
+    }
+
+    /**
+     * @return the sequence number of the last appended visit
+     */
+    long getLastSequence() {
+        return this.lastSequence;
+    }
+
+    private void write(String record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+}
@@ -15,11 +15,28 @@
  */
 package org.springframework.samples.petclinic.visit;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository class for <code>Visit</code> domain objects All method names are compliant with Spring Data naming
@@ -30,16 +47,97 @@ import org.springframework.samples.petclinic.model.BaseEntity;
  * @author Sam Brannen
  * @author Michael Isvy
  */
-public interface VisitRepository extends Repository<Visit, Integer> {
+public interface VisitRepository extends Repository<Visit, Integer>, VisitRepositoryCustom {
 
     /**
-     * Save a <code>Visit</code> to the data store, either inserting or updating it.
+     * Save a <code>Visit</code> to the data store, either inserting or updating it. Evicts the cached fragment of the
+     * pet once the transaction commits; visits are loaded lazily, so cached owners do not hold them.
      *
      * @param visit the <code>Visit</code> to save
      * @see BaseEntity#isNew
      */
+    @CacheEvict(value = "fragments", key = "'pet-' + #p0.petId")
     void save(Visit visit) throws DataAccessException;
 
     List<Visit> findByPetId(Integer petId);
 
+    /**
+     * Retrieve one page of the visits of a pet, most recent first. Served by the <code>visits_pet_id</code> index on
+     * (pet_id, visit_date).
+     * @param petId the id of the pet
+     * @param pageable the page to read
+     * @return the visits of the page, and whether older visits exist
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.petId = :petId ORDER BY visit.date DESC, visit.id DESC")
+    @Transactional(readOnly = true)
+    Slice<Visit> findPageByPetId(@Param("petId") Integer petId, Pageable pageable);
+
+    /**
+     * Retrieve the most recent visits of several pets in one query: a visit is returned when fewer than
+     * <code>count</code> visits of the same pet are newer. The correlated count runs on the <code>visits_pet_id</code>
+     * index; window functions would be cheaper but are not available on MySQL 5.7.
+     * @param petIds the ids of the pets
+     * @param count the number of visits to return per pet
+     * @return the visits, ordered by pet and most recent first
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.petId IN :petIds AND (SELECT COUNT(newer) FROM Visit newer "
+        + "WHERE newer.petId = visit.petId AND (newer.date > visit.date OR (newer.date = visit.date AND newer.id > visit.id))) < :count "
+        + "ORDER BY visit.petId, visit.date DESC, visit.id DESC")
+    @Transactional(readOnly = true)
+    List<Visit> findLatestByPetIdIn(@Param("petIds") Collection<Integer> petIds, @Param("count") long count);
+
+    /**
+     * Retrieve the first page of the visits of each of the given pets, most recent first, like
+     * {@link #findPageByPetId(Integer, Pageable)} but with a single query for all pets.
+     * @param petIds the ids of the pets
+     * @param size the page size
+     * @return the first page of visits keyed by pet id; pets without visits map to an empty page
+     */
+    default Map<Integer, Slice<Visit>> findFirstPagesByPetIds(Collection<Integer> petIds, int size) {
+        Map<Integer, Slice<Visit>> pages = new HashMap<>();
+        if (petIds.isEmpty()) {
+            return pages;
+        }
+        Map<Integer, List<Visit>> latest = new HashMap<>();
+        for (Integer petId : petIds) {
+            latest.put(petId, new ArrayList<>());
+        }
+        // one more than the page size tells whether older visits exist
+        for (Visit visit : findLatestByPetIdIn(petIds, size + 1)) {
+            latest.get(visit.getPetId()).add(visit);
+        }
+        Pageable first = PageRequest.of(0, size);
+        latest.forEach((petId, visits) -> {
+            boolean hasNext = visits.size() > size;
+            pages.put(petId, new SliceImpl<>(hasNext ? visits.subList(0, size) : visits, first, hasNext));
+        });
+        return pages;
+    }
+
+    /**
+     * Stream all visits of a pet, most recent first. The stream must be consumed and closed inside a transaction;
+     * see {@link #forEachByPetId(Integer, Consumer)}. The visits are constructed from the selected columns rather than
+     * loaded as entities, so the persistence context does not keep them and a long history is streamed in bounded
+     * memory.
+     * @param petId the id of the pet
+     * @return unmanaged copies of the visits
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.visit.Visit(visit.id, visit.petId, visit.date, "
+        + "visit.description) FROM Visit visit WHERE visit.petId = :petId ORDER BY visit.date DESC, visit.id DESC")
+    @QueryHints({ @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500") })
+    Stream<Visit> streamByPetId(@Param("petId") Integer petId);
+
+    /**
+     * Pass all visits of a pet to the given action as they are read from the database, most recent first.
+     * @param petId the id of the pet
+     * @param action receives unmanaged copies of the visits
+     */
+    @Transactional(readOnly = true)
+    default void forEachByPetId(Integer petId, Consumer<Visit> action) {
+        try (Stream<Visit> visits = streamByPetId(petId)) {
+            visits.forEach(action);
+        }
+    }
+
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Custom part of {@link VisitRepository}, implemented by {@link VisitRepositoryImpl}.
+ */
+public interface VisitRepositoryCustom {
+
+    /**
+     * Save several <code>Visit</code>s in one transaction. New visits are inserted with JDBC batching. Evicts the
+     * cached fragments of the pets of the visits.
+     *
+     * @param visits the <code>Visit</code>s to save
+     */
+    void saveAll(Iterable<Visit> visits) throws DataAccessException;
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Saves batches of visits, then evicts the <code>pet-{id}</code> fragments of the affected pets only; an eviction
+ * annotation can only name a single key. The caches are transaction-aware (see <code>CacheConfig</code>), so the
+ * evictions take effect when the transaction commits.
+ */
+class VisitRepositoryImpl implements VisitRepositoryCustom {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    VisitRepositoryImpl(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    @Transactional
+    public void saveAll(Iterable<Visit> visits) {
+        Set<Integer> petIds = new LinkedHashSet<>();
+        for (Visit visit : visits) {
+            if (visit.isNew()) {
+                this.entityManager.persist(visit);
+            } else {
+                this.entityManager.merge(visit);
+            }
+            petIds.add(visit.getPetId());
+        }
+        CacheManager cacheManager = this.cacheManager.getIfAvailable();
+        Cache fragments = cacheManager == null ? null : cacheManager.getCache("fragments");
+        if (fragments != null) {
+            for (Integer petId : petIds) {
+                fragments.evict("pet-" + petId);
+            }
+        }
+    }
+
+}
@@ -5,6 +5,21 @@ DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP SEQUENCE vet_seq IF EXISTS;
+DROP SEQUENCE specialty_seq IF EXISTS;
+DROP SEQUENCE pet_type_seq IF EXISTS;
+DROP SEQUENCE owner_seq IF EXISTS;
+DROP SEQUENCE pet_seq IF EXISTS;
+DROP SEQUENCE visit_seq IF EXISTS;
+
+-- Id sequences used with Hibernate's pooled optimizer: each value reserves the 50 ids up to and including it,
+-- so they start above the ids of the sample data.
+CREATE SEQUENCE vet_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE specialty_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE pet_type_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE owner_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE pet_seq START WITH 100 INCREMENT BY 50;
+CREATE SEQUENCE visit_seq START WITH 100 INCREMENT BY 50;
 
 
 CREATE TABLE vets (
@@ -41,7 +56,8 @@ CREATE TABLE owners (
   city       VARCHAR(80),
   telephone  VARCHAR(20)
 );
-CREATE INDEX owners_last_name ON owners (last_name);
+-- serves the owner search: the last name prefix filter and the (last_name, first_name, id) keyset ordering
+CREATE INDEX owners_search ON owners (last_name, first_name, id);
 
 CREATE TABLE pets (
   id         INTEGER IDENTITY PRIMARY KEY,
@@ -53,6 +69,7 @@ CREATE TABLE pets (
 ALTER TABLE pets ADD CONSTRAINT fk_pets_owners FOREIGN KEY (owner_id) REFERENCES owners (id);
 ALTER TABLE pets ADD CONSTRAINT fk_pets_types FOREIGN KEY (type_id) REFERENCES types (id);
 CREATE INDEX pets_name ON pets (name);
+CREATE INDEX pets_owner_id_name ON pets (owner_id, name);
 
 CREATE TABLE visits (
   id          INTEGER IDENTITY PRIMARY KEY,
@@ -61,4 +78,4 @@ CREATE TABLE visits (
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
-CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_pet_id ON visits (pet_id, visit_date);
@@ -51,3 +51,17 @@ INSERT IGNORE INTO visits VALUES (1, 7, '2010-03-04', 'rabies shot');
 INSERT IGNORE INTO visits VALUES (2, 8, '2011-03-04', 'rabies shot');
 INSERT IGNORE INTO visits VALUES (3, 8, '2009-06-04', 'neutered');
 INSERT IGNORE INTO visits VALUES (4, 7, '2008-09-04', 'spayed');
+
+-- sequences start past the highest existing id, so that existing databases keep working
+INSERT INTO vet_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM vets), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM vet_seq);
+INSERT INTO specialty_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM specialties), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM specialty_seq);
+INSERT INTO pet_type_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM types), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM pet_type_seq);
+INSERT INTO owner_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM owners), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM owner_seq);
+INSERT INTO pet_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM pets), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM pet_seq);
+INSERT INTO visit_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM visits), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM visit_seq);
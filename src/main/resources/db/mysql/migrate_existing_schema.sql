@@ -0,0 +1,33 @@
+-- Upgrades a petclinic database created by an earlier schema.sql: CREATE TABLE IF NOT EXISTS leaves existing
+-- tables untouched, so their new indexes and the id sequences have to be added once, before the first start of
+-- this version:
+--   mysql -u root -p petclinic < migrate_existing_schema.sql
+
+-- case-insensitive owner search in (last_name, first_name, id) order
+ALTER TABLE owners MODIFY last_name VARCHAR(30) COLLATE utf8_general_ci,
+  DROP INDEX last_name,
+  ADD INDEX owners_search (last_name, first_name, id);
+
+-- pets by owner, visits by pet
+ALTER TABLE pets ADD INDEX pets_owner_id_name (owner_id, name);
+ALTER TABLE visits ADD INDEX visits_pet_id (pet_id, visit_date);
+
+-- id sequences, starting past the highest existing id
+CREATE TABLE IF NOT EXISTS vet_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS specialty_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS pet_type_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS owner_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS pet_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS visit_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+INSERT INTO vet_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM vets), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM vet_seq);
+INSERT INTO specialty_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM specialties), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM specialty_seq);
+INSERT INTO pet_type_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM types), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM pet_type_seq);
+INSERT INTO owner_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM owners), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM owner_seq);
+INSERT INTO pet_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM pets), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM pet_seq);
+INSERT INTO visit_seq (next_val) SELECT COALESCE((SELECT MAX(id) FROM visits), 0) + 100 FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM visit_seq);
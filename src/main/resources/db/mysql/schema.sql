@@ -38,11 +38,13 @@ CREATE TABLE IF NOT EXISTS types (
 CREATE TABLE IF NOT EXISTS owners (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
-  last_name VARCHAR(30),
+  last_name VARCHAR(30) COLLATE utf8_general_ci,
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  -- case-insensitive like VARCHAR_IGNORECASE on HSQLDB; serves both the last name prefix filter and the
+  -- (last_name, first_name, id) keyset ordering of the owner search, so no filesort is needed
+  INDEX owners_search (last_name, first_name, id)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -52,6 +54,7 @@ CREATE TABLE IF NOT EXISTS pets (
   type_id INT(4) UNSIGNED NOT NULL,
   owner_id INT(4) UNSIGNED NOT NULL,
   INDEX(name),
+  INDEX pets_owner_id_name (owner_id, name),
   FOREIGN KEY (owner_id) REFERENCES owners(id),
   FOREIGN KEY (type_id) REFERENCES types(id)
 ) engine=InnoDB;
@@ -61,5 +64,15 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX visits_pet_id (pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- Id sequences used with Hibernate's pooled optimizer. MySQL has no sequences, so each one is a single-row table
+-- (initialized in data.sql); each value reserves the 50 ids up to and including it.
+CREATE TABLE IF NOT EXISTS vet_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS specialty_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS pet_type_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS owner_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS pet_seq (next_val BIGINT NOT NULL) engine=InnoDB;
+CREATE TABLE IF NOT EXISTS visit_seq (next_val BIGINT NOT NULL) engine=InnoDB;
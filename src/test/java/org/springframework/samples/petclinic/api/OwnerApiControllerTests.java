@@ -0,0 +1,97 @@
+package org.springframework.samples.petclinic.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Test class for {@link OwnerApiController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(OwnerApiController.class)
+public class OwnerApiControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @MockBean
+    private PetRepository pets;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testListOwnersStreamsSummaries() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<OwnerSummary> action = invocation.getArgument(1);
+            action.accept(new OwnerSummary(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749",
+                "Basil"));
+            action.accept(new OwnerSummary(4, "Harold", "Davis", "563 Friendly St.", "Windsor", "6085553198",
+                null));
+            return null;
+        }).given(this.owners).forEachSummaryByLastName(eq("Davis"), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/owners").param("lastName", "Davis"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(content().json("[{\"id\":2,\"lastName\":\"Davis\",\"pets\":[\"Basil\"]},"
+                + "{\"id\":4,\"firstName\":\"Harold\",\"pets\":[]}]"));
+    }
+
+    @Test
+    public void testShowOwnerWithPets() throws Exception {
+        Owner george = new Owner();
+        george.setId(1);
+        george.setFirstName("George");
+        george.setLastName("Franklin");
+        PetType cat = new PetType();
+        cat.setName("cat");
+        Pet leo = new Pet();
+        leo.setId(1);
+        leo.setName("Leo");
+        leo.setType(cat);
+        george.addPet(leo);
+        given(this.owners.findById(1)).willReturn(george);
+
+        MvcResult result = mockMvc.perform(get("/api/owners/1")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().json("{\"id\":1,\"lastName\":\"Franklin\","
+                + "\"pets\":[{\"id\":1,\"name\":\"Leo\",\"type\":\"cat\",\"ownerId\":1}]}"));
+    }
+
+    @Test
+    public void testShowUnknownOwner() throws Exception {
+        mockMvc.perform(get("/api/owners/99"))
+            .andExpect(status().isNotFound());
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.springframework.samples.petclinic.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Test class for {@link VisitApiController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(VisitApiController.class)
+public class VisitApiControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private PetRepository pets;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testListVisitsStreamsHistory() throws Exception {
+        given(this.pets.findById(7)).willReturn(new Pet());
+        willAnswer(invocation -> {
+            Consumer<Visit> action = invocation.getArgument(1);
+            Visit visit = new Visit();
+            visit.setId(1);
+            visit.setPetId(7);
+            visit.setDescription("rabies shot");
+            action.accept(visit);
+            return null;
+        }).given(this.visits).forEachByPetId(eq(7), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/pets/7/visits")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().json("[{\"id\":1,\"petId\":7,\"description\":\"rabies shot\"}]"));
+    }
+
+    @Test
+    public void testListVisitsOfUnknownPet() throws Exception {
+        mockMvc.perform(get("/api/pets/99/visits"))
+            .andExpect(status().isNotFound());
+    }
+
+}
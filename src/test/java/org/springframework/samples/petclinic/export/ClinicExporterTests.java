@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Test class for {@link ClinicExporter}
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest(properties = "petclinic.export.fetch-size=3")
+@Import(ClinicExporter.class)
+public class ClinicExporterTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private ClinicExporter exporter;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void shouldExportEveryTableAsNdjson() throws Exception {
+        Path directory = this.folder.getRoot().toPath().resolve("export");
+
+        Map<String, Long> rows = this.exporter.export(directory);
+
+        assertThat(rows).containsKeys("owners", "pets", "visits", "vets");
+        assertThat(rows.get("owners")).isEqualTo(10L);
+        assertThat(lines(directory, "owners.ndjson")).hasSize(10);
+        assertThat(lines(directory, "pets.ndjson")).hasSize(rows.get("pets").intValue());
+        assertThat(lines(directory, "visits.ndjson")).hasSize(rows.get("visits").intValue());
+
+        JsonNode george = this.mapper.readTree(lines(directory, "owners.ndjson").get(0));
+        assertThat(george.get("firstName").asText()).isEqualTo("George");
+        assertThat(george.get("telephone").asText()).isEqualTo("6085551023");
+        JsonNode leo = this.mapper.readTree(lines(directory, "pets.ndjson").get(0));
+        assertThat(leo.get("birthDate").asText()).isEqualTo("2010-09-07");
+        assertThat(leo.get("type").asText()).isEqualTo("cat");
+    }
+
+    @Test
+    public void shouldWriteOneLinePerVetWithItsSpecialties() throws Exception {
+        Path directory = this.folder.getRoot().toPath();
+
+        Map<String, Long> rows = this.exporter.export(directory);
+
+        List<String> vets = lines(directory, "vets.ndjson");
+        assertThat(vets).hasSize(6);
+        assertThat(rows.get("vets")).isEqualTo(6L);
+        assertThat(this.mapper.readTree(vets.get(0)).get("specialties").size()).isEqualTo(0);
+        assertThat(this.mapper.readTree(vets.get(2)).get("specialties")).extracting(JsonNode::asText)
+            .containsExactly("dentistry", "surgery");
+    }
+
+    @Test
+    public void shouldWriteAcrossBufferDrains() throws Exception {
+        Path file = this.folder.newFile().toPath();
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        try (ChannelFileOutputStream out = new ChannelFileOutputStream(file, 16)) {
+            out.write(bytes, 0, 50);
+            out.write(bytes[50]);
+            out.write(bytes, 51, 49);
+            assertThat(out.size()).isEqualTo(100);
+        }
+        assertThat(Files.readAllBytes(file)).isEqualTo(bytes);
+    }
+
+    private List<String> lines(Path directory, String file) throws Exception {
+        return Files.readAllLines(directory.resolve(file), StandardCharsets.UTF_8);
+    }
+
+}
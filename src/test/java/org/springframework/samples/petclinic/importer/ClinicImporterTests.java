@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSearchIndex;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetTypeRegistry;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * Test class for {@link ClinicImporter}
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({ ClinicImporter.class, PetTypeRegistry.class, OwnerSearchIndex.class, LocalValidatorFactoryBean.class })
+public class ClinicImporterTests {
+
+    @Autowired
+    private ClinicImporter importer;
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private OwnerSearchIndex searchIndex;
+
+    @Autowired
+    private PetTypeRegistry petTypes;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void shouldImportNdjsonAndRejectInvalidOwners() throws Exception {
+        String input = "{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"address\":\"12 St James's Sq.\","
+            + "\"city\":\"London\",\"telephone\":\"4420555\",\"pets\":[{\"name\":\"Byron\","
+            + "\"birthDate\":\"2015-03-01\",\"type\":\"cat\",\"visits\":[{\"date\":\"2018-01-02\","
+            + "\"description\":\"annual checkup\"},{\"description\":\"vaccination\"}]}]}\n"
+            + "\n"
+            + "{\"firstName\":\"Charles\",\"lastName\":\"Lovelace\",\"address\":\"1 Bond St.\","
+            + "\"city\":\"London\",\"telephone\":\"not a number\"}\n"
+            + "{\"firstName\":\n"
+            + "{\"firstName\":\"Annabella\",\"lastName\":\"Lovelace-Byron-Milbanke-Noel-King\",\"address\":\"Seaham\","
+            + "\"city\":\"Durham\",\"telephone\":\"4420556\"}\n";
+
+        ImportReport report = this.importer.importData(new StringReader(input), ImportFormat.NDJSON);
+
+        assertThat(report.getOwners()).isEqualTo(1);
+        assertThat(report.getPets()).isEqualTo(1);
+        assertThat(report.getVisits()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::getLine).containsExactly(3L, 4L, 5L);
+        assertThat(report.getErrors().get(0).getMessage()).startsWith("telephone");
+        assertThat(report.getErrors().get(2).getMessage()).startsWith("lastName");
+        // nothing imported stays in the persistence context shared with the caller
+        assertThat(this.entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+
+        Collection<Owner> found = this.owners.findByLastName("Lovelace");
+        assertThat(found).hasSize(1);
+        Pet byron = found.iterator().next().getPet("Byron");
+        assertThat(byron.getType().getName()).isEqualTo("cat");
+        assertThat(this.visits.findByPetId(byron.getId())).hasSize(2);
+        assertThat(this.searchIndex.search("byron", 10)).hasSize(1);
+    }
+
+    @Test
+    public void shouldGroupCsvRowsByOwnerAndPet() throws Exception {
+        String input = "firstName,lastName,address,city,telephone,petName,petBirthDate,petType,visitDate,"
+            + "visitDescription\r\n"
+            + "Grace,Hopper,\"1 Navy Yard, Apt 2\",Arlington,7035550100,Cobol,2014-05-06,dog,2018-02-03,limping\r\n"
+            + "Grace,Hopper,\"1 Navy Yard, Apt 2\",Arlington,7035550100,Cobol,2014-05-06,dog,2018-03-04,\"x-ray, "
+            + "\"\"front leg\"\"\"\r\n"
+            + "Grace,Hopper,\"1 Navy Yard, Apt 2\",Arlington,7035550100,Mark,2016-07-08,hamster,,\r\n"
+            + "Alan,Turing,Wilmslow Rd.,Manchester,1615550100,Enigma,2012-06-23,unicorn,,\r\n"
+            + "Kurt,Goedel,Linden Ln.,Princeton,6095550100,,,,,\r\n";
+
+        ImportReport report = this.importer.importData(new StringReader(input), ImportFormat.CSV);
+
+        assertThat(report.getOwners()).isEqualTo(2);
+        assertThat(report.getPets()).isEqualTo(2);
+        assertThat(report.getVisits()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(1);
+        assertThat(report.getErrors().get(0).getLine()).isEqualTo(5L);
+        assertThat(report.getErrors().get(0).getMessage()).isEqualTo("unknown pet type unicorn");
+
+        Owner grace = this.owners.findByLastName("Hopper").iterator().next();
+        assertThat(grace.getAddress()).isEqualTo("1 Navy Yard, Apt 2");
+        assertThat(grace.getPets()).extracting(Pet::getName).containsExactly("Cobol", "Mark");
+        assertThat(this.visits.findByPetId(grace.getPet("Cobol").getId()))
+            .extracting(visit -> visit.getDescription()).containsOnly("limping", "x-ray, \"front leg\"");
+        assertThat(this.owners.findByLastName("Turing")).isEmpty();
+        assertThat(this.owners.findByLastName("Goedel")).hasSize(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void shouldWriteRefusedChunkOwnerByOwner() throws Exception {
+        // the database refuses a visit that passed validation
+        VisitRepository refusing = mock(VisitRepository.class);
+        willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            if (visits.stream().anyMatch(visit -> "refused".equals(visit.getDescription()))) {
+                throw new DataIntegrityViolationException("check constraint violated");
+            }
+            this.visits.saveAll(visits);
+            return null;
+        }).given(refusing).saveAll(any());
+        ClinicImporter importer = new ClinicImporter(this.owners, refusing, this.petTypes, this.searchIndex,
+            this.validator, this.transactionManager, this.entityManager);
+        String input = "{\"firstName\":\"Ada\",\"lastName\":\"Chunked\",\"address\":\"1 Main St.\",\"city\":\"London\","
+            + "\"telephone\":\"4420555\",\"pets\":[{\"name\":\"Byron\",\"birthDate\":\"2015-03-01\",\"type\":\"cat\","
+            + "\"visits\":[{\"date\":\"2018-01-02\",\"description\":\"checkup\"}]}]}\n"
+            + "{\"firstName\":\"Bob\",\"lastName\":\"Chunked\",\"address\":\"2 Main St.\",\"city\":\"London\","
+            + "\"telephone\":\"4420556\",\"pets\":[{\"name\":\"Rex\",\"birthDate\":\"2015-03-01\",\"type\":\"dog\","
+            + "\"visits\":[{\"date\":\"2018-01-02\",\"description\":\"refused\"}]}]}\n"
+            + "{\"firstName\":\"Cy\",\"lastName\":\"Chunked\",\"address\":\"3 Main St.\",\"city\":\"London\","
+            + "\"telephone\":\"4420557\"}\n";
+
+        try {
+            ImportReport report = importer.importData(new StringReader(input), ImportFormat.NDJSON);
+
+            assertThat(report.getOwners()).isEqualTo(2);
+            assertThat(report.getVisits()).isEqualTo(1);
+            assertThat(report.getRejected()).isEqualTo(1);
+            assertThat(report.getErrors().get(0).getLine()).isEqualTo(2L);
+            assertThat(report.getErrors().get(0).getMessage()).isEqualTo("not saved: check constraint violated");
+            assertThat(this.owners.findByLastName("Chunked")).extracting(Owner::getFirstName)
+                .containsOnly("Ada", "Cy");
+            Pet byron = this.owners.findByLastName("Chunked").stream()
+                .filter(owner -> owner.getFirstName().equals("Ada")).findFirst().get().getPet("Byron");
+            assertThat(this.visits.findByPetId(byron.getId())).hasSize(1);
+        } finally {
+            this.jdbc.update("DELETE FROM visits WHERE pet_id IN (SELECT p.id FROM pets p JOIN owners o "
+                + "ON p.owner_id = o.id WHERE o.last_name = 'Chunked')");
+            this.jdbc.update("DELETE FROM pets WHERE owner_id IN (SELECT id FROM owners WHERE last_name = 'Chunked')");
+            this.jdbc.update("DELETE FROM owners WHERE last_name = 'Chunked'");
+        }
+    }
+
+}
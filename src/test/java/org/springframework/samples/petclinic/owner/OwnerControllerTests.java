@@ -1,14 +1,25 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,9 +27,17 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerController;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -39,6 +58,15 @@ public class OwnerControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private OwnerSearchIndex searchIndex;
+
+    @MockBean
+    private CacheManager cacheManager;
+
     private Owner george;
 
     @Before
@@ -97,15 +125,49 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormSuccess() throws Exception {
-        given(this.owners.findByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
+        Owner betty = new Owner();
+        betty.setId(2);
+        betty.setLastName("Davis");
+        given(this.owners.findIdPageByLastName(eq(""), any(Pageable.class))).willReturn(Lists.newArrayList(2, 1));
+        given(this.owners.findSummariesByIdIn(anyCollection()))
+            .willReturn(Lists.newArrayList(summaryOf(george), summaryOf(betty)));
+        mockMvc.perform(get("/owners"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeDoesNotExist("nextCursor", "previousCursor"))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormFirstPageHasNextCursor() throws Exception {
+        givenOwnerPage(makeOwners(1, 21));
+        given(this.owners.findIdPageByLastName(eq(""), any(Pageable.class))).willReturn(idsOf(makeOwners(1, 21)));
         mockMvc.perform(get("/owners"))
             .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(20)))
+            .andExpect(model().attribute("nextCursor", new OwnerCursor("Owner20", "First20", 20).encode()))
+            .andExpect(model().attributeDoesNotExist("previousCursor"))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormNextPage() throws Exception {
+        givenOwnerPage(makeOwners(21, 5));
+        given(this.owners.findIdPageByLastNameAfter(eq(""), eq("Owner20"), eq("First20"), eq(20), any(Pageable.class)))
+            .willReturn(idsOf(makeOwners(21, 5)));
+        mockMvc.perform(get("/owners")
+            .param("after", new OwnerCursor("Owner20", "First20", 20).encode())
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(5)))
+            .andExpect(model().attribute("previousCursor", new OwnerCursor("Owner21", "First21", 21).encode()))
+            .andExpect(model().attributeDoesNotExist("nextCursor"))
             .andExpect(view().name("owners/ownersList"));
     }
 
     @Test
     public void testProcessFindFormByLastName() throws Exception {
-        given(this.owners.findByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+        given(this.owners.findIdPageByLastName(eq(george.getLastName()), any(Pageable.class))).willReturn(Lists.newArrayList(TEST_OWNER_ID));
+        given(this.owners.findSummariesByIdIn(anyCollection())).willReturn(Lists.newArrayList(summaryOf(george)));
         mockMvc.perform(get("/owners")
             .param("lastName", "Franklin")
         )
@@ -124,6 +186,16 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/findOwners"));
     }
 
+    @Test
+    public void testSearchOwners() throws Exception {
+        given(this.searchIndex.search("dav 608", 50)).willReturn(Collections.<OwnerSearchIndex.Hit>emptyList());
+        mockMvc.perform(get("/owners/search").param("q", "dav 608"))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("query", "dav 608"))
+            .andExpect(model().attribute("hits", hasSize(0)))
+            .andExpect(view().name("owners/searchResults"));
+    }
+
     @Test
     public void testInitUpdateOwnerForm() throws Exception {
         mockMvc.perform(get("/owners/{ownerId}/edit", TEST_OWNER_ID))
@@ -173,7 +245,81 @@ public class OwnerControllerTests {
             .andExpect(model().attribute("owner", hasProperty("address", is("110 W. Liberty St."))))
             .andExpect(model().attribute("owner", hasProperty("city", is("Madison"))))
             .andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
+            .andExpect(model().attributeExists("latestVisits"))
             .andExpect(view().name("owners/ownerDetails"));
     }
 
+    @Test
+    public void testShowOwnerLoadsLatestVisitsOnly() throws Exception {
+        Pet max = new Pet();
+        max.setId(7);
+        max.setName("Max");
+        george.addPet(max);
+        Visit visit = new Visit();
+        visit.setDescription("rabies shot");
+        given(this.visits.findFirstPagesByPetIds(Collections.singletonList(7), 5)).willReturn(Collections.singletonMap(7,
+            new SliceImpl<>(Collections.singletonList(visit), PageRequest.of(0, 5), true)));
+
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("latestVisits", hasEntry(is(7), hasProperty("content", hasSize(1)))))
+            .andExpect(view().name("owners/ownerDetails"));
+    }
+
+    @Test
+    public void testShowOwnerSkipsVisitsOfCachedPets() throws Exception {
+        Pet max = new Pet();
+        max.setId(7);
+        max.setName("Max");
+        george.addPet(max);
+        Cache fragments = mock(Cache.class);
+        given(fragments.get("pet-7")).willReturn(new SimpleValueWrapper("<tr></tr>"));
+        given(this.cacheManager.getCache("fragments")).willReturn(fragments);
+        // this slice does not use the fragment dialect, so the row is still rendered and loads its visits explicitly
+        given(this.visits.findPageByPetId(7, PageRequest.of(0, 5)))
+            .willReturn(new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, 5), false));
+
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(view().name("owners/ownerDetails"));
+
+        verify(this.visits).findFirstPagesByPetIds(Collections.emptyList(), 5);
+        verify(this.visits).findPageByPetId(7, PageRequest.of(0, 5));
+    }
+
+    private void givenOwnerPage(List<Owner> owners) {
+        // the controller keeps the id order, so hand the owners back shuffled
+        List<OwnerSummary> unordered = new ArrayList<>();
+        for (Owner owner : owners) {
+            unordered.add(summaryOf(owner));
+        }
+        Collections.reverse(unordered);
+        given(this.owners.findSummariesByIdIn(anyCollection())).willReturn(unordered);
+    }
+
+    private OwnerSummary summaryOf(Owner owner) {
+        return new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+            owner.getCity(), owner.getTelephone(), null);
+    }
+
+    private List<Integer> idsOf(List<Owner> owners) {
+        List<Integer> ids = new ArrayList<>();
+        for (Owner owner : owners) {
+            ids.add(owner.getId());
+        }
+        return ids;
+    }
+
+    private List<Owner> makeOwners(int firstId, int count) {
+        List<Owner> owners = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++) {
+            Owner owner = new Owner();
+            owner.setId(id);
+            owner.setFirstName("First" + id);
+            owner.setLastName(String.format("Owner%02d", id));
+            owners.add(owner);
+        }
+        return owners;
+    }
+
 }
@@ -0,0 +1,138 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OwnerSearchIndexTests {
+
+    @Mock
+    private OwnerRepository owners;
+
+    private OwnerSearchIndex index;
+
+    @Before
+    public void setup() {
+        Owner betty = owner(2, "Betty", "Davis", "Sun Prairie", "6085551749");
+        Owner harold = owner(4, "Harold", "Davis", "Windsor", "6085553198");
+        Owner jean = owner(6, "Jean", "Coleman", "Monona", "6085552654");
+        addPet(jean, 8, "Max");
+        addPet(harold, 5, "Iggy");
+        given(this.owners.findIdsAfter(eq(0), any(Pageable.class))).willReturn(Arrays.asList(2, 4, 6));
+        given(this.owners.findIdsAfter(eq(6), any(Pageable.class))).willReturn(Collections.<Integer>emptyList());
+        given(this.owners.findAllWithPetsByIdIn(anyCollection())).willReturn(Arrays.asList(betty, harold, jean));
+        this.index = new OwnerSearchIndex(this.owners);
+        this.index.rebuild();
+    }
+
+    @Test
+    public void shouldFindOwnersByLastNamePrefix() {
+        assertThat(this.index.search("dav", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(2, 4);
+    }
+
+    @Test
+    public void shouldRequireEveryWord() {
+        assertThat(this.index.search("davis windsor", 10)).extracting(OwnerSearchIndex.Hit::getId)
+            .containsExactly(4);
+    }
+
+    @Test
+    public void shouldFindOwnersByPetNameAndTelephoneDigits() {
+        assertThat(this.index.search("max", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(6);
+        assertThat(this.index.search("3198", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(4);
+    }
+
+    @Test
+    public void shouldRankLastNameAboveCity() {
+        Owner monroe = owner(9, "Mary", "Monona", "Madison", "6085550000");
+        this.index.updateOwner(monroe);
+        assertThat(this.index.search("monona", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(9, 6);
+    }
+
+    @Test
+    public void shouldKeepPetsWhenOwnerIsUpdated() {
+        Owner jean = owner(6, "Jean", "Smith", "Monona", "6085552654");
+        this.index.updateOwner(jean);
+
+        assertThat(this.index.search("coleman", 10)).isEmpty();
+        OwnerSearchIndex.Hit hit = this.index.search("smith", 10).get(0);
+        assertThat(hit.getPets()).containsExactly("Max");
+    }
+
+    @Test
+    public void shouldIndexNewAndRenamedPets() {
+        Owner betty = owner(2, "Betty", "Davis", "Sun Prairie", "6085551749");
+        Pet leo = addPet(betty, 1, "Leo");
+        this.index.updatePet(leo);
+        leo.setName("Leonard");
+        this.index.updatePet(leo);
+
+        assertThat(this.index.search("leonard", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(2);
+        assertThat(this.index.search("leo", 10).get(0).getPets()).containsExactly("Leonard");
+    }
+
+    @Test
+    public void shouldApplyUpdatesMadeDuringRebuild() {
+        Owner betty = owner(2, "Betty", "Davis", "Sun Prairie", "6085551749");
+        Owner harold = owner(4, "Harold", "Davis", "Windsor", "6085553198");
+        addPet(harold, 5, "Iggy");
+        Owner renamed = owner(4, "Harold", "Jones", "Windsor", "6085553198");
+        given(this.owners.findAllWithPetsByIdIn(anyCollection())).willAnswer(invocation -> {
+            // saved while the owners are loaded: neither blocked by the rebuild nor lost by it
+            Thread saving = new Thread(() -> this.index.updateOwner(renamed));
+            saving.start();
+            saving.join(5000);
+            assertThat(saving.isAlive()).isFalse();
+            assertThat(this.index.search("jones", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(4);
+            return Arrays.asList(betty, harold);
+        });
+
+        this.index.rebuild();
+
+        assertThat(this.index.search("davis", 10)).extracting(OwnerSearchIndex.Hit::getId).containsExactly(2);
+        OwnerSearchIndex.Hit hit = this.index.search("jones", 10).get(0);
+        assertThat(hit.getId()).isEqualTo(4);
+        assertThat(hit.getPets()).containsExactly("Iggy");
+    }
+
+    @Test
+    public void shouldIgnoreEmptyQuery() {
+        assertThat(this.index.search(" ,. ", 10)).isEmpty();
+    }
+
+    private static Owner owner(int id, String firstName, String lastName, String city, String telephone) {
+        Owner owner = new Owner();
+        owner.setId(id);
+        owner.setFirstName(firstName);
+        owner.setLastName(lastName);
+        owner.setAddress("1 Main St.");
+        owner.setCity(city);
+        owner.setTelephone(telephone);
+        return owner;
+    }
+
+    private static Pet addPet(Owner owner, int id, String name) {
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setName(name);
+        owner.addPet(pet);
+        return pet;
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Checks the query plans of the owner search against the embedded database, so that a schema or query change that
+ * turns the search into a full table scan fails the build.
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class OwnerSearchPlanTests {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    public void lastNamePrefixSearchUsesSearchIndex() {
+        String plan = explain("SELECT id FROM owners WHERE last_name LIKE 'Dav%' "
+            + "ORDER BY last_name, first_name, id");
+        assertThat(plan).contains("OWNERS_SEARCH").doesNotContain("FULL SCAN");
+    }
+
+    @Test
+    public void petsOfOwnerUseOwnerIndex() {
+        String plan = explain("SELECT id FROM pets WHERE owner_id = 3 ORDER BY name");
+        assertThat(plan).doesNotContain("FULL SCAN");
+    }
+
+    private String explain(String sql) {
+        List<String> lines = this.jdbc.queryForList("EXPLAIN PLAN FOR " + sql, String.class);
+        return String.join("\n", lines).toUpperCase();
+    }
+
+}
@@ -34,7 +34,7 @@ import org.springframework.test.web.servlet.MockMvc;
 @RunWith(SpringRunner.class)
 @WebMvcTest(value = PetController.class,
     includeFilters = @ComponentScan.Filter(
-                            value = PetTypeFormatter.class,
+                            value = { PetTypeFormatter.class, PetTypeRegistry.class },
                             type = FilterType.ASSIGNABLE_TYPE))
 public class PetControllerTests {
 
@@ -51,12 +51,19 @@ public class PetControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @MockBean
+    private OwnerSearchIndex searchIndex;
+
+    @Autowired
+    private PetTypeRegistry petTypes;
+
     @Before
     public void setup() {
         PetType cat = new PetType();
         cat.setId(3);
         cat.setName("hamster");
         given(this.pets.findPetTypes()).willReturn(Lists.newArrayList(cat));
+        this.petTypes.refresh();
         given(this.owners.findById(TEST_OWNER_ID)).willReturn(new Owner());
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
 
@@ -26,11 +26,14 @@ public class PetTypeFormatterTests {
     @Mock
     private PetRepository pets;
 
+    private PetTypeRegistry petTypes;
+
     private PetTypeFormatter petTypeFormatter;
 
     @Before
     public void setup() {
-        this.petTypeFormatter = new PetTypeFormatter(pets);
+        this.petTypes = new PetTypeRegistry(pets);
+        this.petTypeFormatter = new PetTypeFormatter(petTypes);
     }
 
     @Test
@@ -44,13 +47,24 @@ public class PetTypeFormatterTests {
     @Test
     public void shouldParse() throws ParseException {
         Mockito.when(this.pets.findPetTypes()).thenReturn(makePetTypes());
+        this.petTypes.refresh();
         PetType petType = petTypeFormatter.parse("Bird", Locale.ENGLISH);
         assertEquals("Bird", petType.getName());
     }
 
+    @Test
+    public void shouldParseWithoutQueryingRepository() throws ParseException {
+        Mockito.when(this.pets.findPetTypes()).thenReturn(makePetTypes());
+        this.petTypes.refresh();
+        petTypeFormatter.parse("Dog", Locale.ENGLISH);
+        petTypeFormatter.parse("Bird", Locale.ENGLISH);
+        Mockito.verify(this.pets, Mockito.times(1)).findPetTypes();
+    }
+
     @Test(expected = ParseException.class)
     public void shouldThrowParseException() throws ParseException {
         Mockito.when(this.pets.findPetTypes()).thenReturn(makePetTypes());
+        this.petTypes.refresh();
         petTypeFormatter.parse("Fish", Locale.ENGLISH);
     }
 
@@ -1,5 +1,9 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -7,15 +11,21 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.util.Collections;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.VisitController;
+import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -43,6 +53,8 @@ public class VisitControllerTests {
     @Before
     public void init() {
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
+        given(this.visits.findPageByPetId(eq(TEST_PET_ID), any(Pageable.class)))
+            .willReturn(new SliceImpl<>(Collections.<Visit>emptyList()));
     }
 
     @Test
@@ -72,4 +84,18 @@ public class VisitControllerTests {
             .andExpect(view().name("pets/createOrUpdateVisitForm"));
     }
 
+    @Test
+    public void testShowVisits() throws Exception {
+        Visit visit = new Visit();
+        visit.setDescription("rabies shot");
+        given(this.visits.findPageByPetId(TEST_PET_ID, PageRequest.of(1, 20)))
+            .willReturn(new SliceImpl<>(Collections.singletonList(visit), PageRequest.of(1, 20), true));
+
+        mockMvc.perform(get("/owners/*/pets/{petId}/visits", TEST_PET_ID).param("page", "1"))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("visits", hasProperty("number", is(1))))
+            .andExpect(model().attribute("visits", hasProperty("content", is(Collections.singletonList(visit)))))
+            .andExpect(view().name("pets/visitList"));
+    }
+
 }
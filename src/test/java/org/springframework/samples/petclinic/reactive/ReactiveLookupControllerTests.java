@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.reactive;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSummary;
+import org.springframework.samples.petclinic.vet.VetsChangedEvent;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Test class for {@link ReactiveLookupController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(ReactiveLookupController.class)
+@Import(ReactiveClinicReader.class)
+public class ReactiveLookupControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @MockBean
+    private VetRepository vets;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Before
+    public void setup() {
+        // the vet list outlives a single test
+        this.events.publishEvent(new VetsChangedEvent(this));
+    }
+
+    @Test
+    public void testListVetsIsSharedBetweenRequests() throws Exception {
+        given(this.vets.findAllSummaries())
+            .willReturn(Collections.singletonList(new VetSummary(3, "Linda", "Douglas", "surgery")));
+
+        for (int i = 0; i < 2; i++) {
+            listVets("[{\"id\":3,\"lastName\":\"Douglas\",\"specialties\":[\"surgery\"]}]");
+        }
+        verify(this.vets, times(1)).findAllSummaries();
+    }
+
+    @Test
+    public void testListVetsIsReloadedWhenVetsChange() throws Exception {
+        given(this.vets.findAllSummaries())
+            .willReturn(Collections.singletonList(new VetSummary(3, "Linda", "Douglas", "surgery")))
+            .willReturn(Collections.singletonList(new VetSummary(3, "Linda", "Douglas", "dentistry")));
+        listVets("[{\"id\":3,\"specialties\":[\"surgery\"]}]");
+
+        this.events.publishEvent(new VetsChangedEvent(this));
+
+        listVets("[{\"id\":3,\"specialties\":[\"dentistry\"]}]");
+        verify(this.vets, times(2)).findAllSummaries();
+    }
+
+    @Test
+    public void testShowOwner() throws Exception {
+        given(this.owners.findSummariesByIdIn(anyCollection())).willReturn(Collections.singletonList(
+            new OwnerSummary(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023", "Leo")));
+
+        MvcResult result = mockMvc.perform(get("/reactive/owners/1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().json("{\"id\":1,\"lastName\":\"Franklin\",\"pets\":[\"Leo\"]}"));
+    }
+
+    @Test
+    public void testShowUnknownOwner() throws Exception {
+        given(this.owners.findSummariesByIdIn(anyCollection())).willReturn(Collections.<OwnerSummary>emptyList());
+
+        MvcResult result = mockMvc.perform(get("/reactive/owners/99"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isNotFound());
+    }
+
+    private void listVets(String json) throws Exception {
+        MvcResult result = mockMvc.perform(get("/reactive/vets"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().json(json));
+    }
+
+}
@@ -2,21 +2,34 @@ package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.vet.Specialty;
 import org.springframework.samples.petclinic.vet.Vet;
 import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSummary;
 import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Service;
@@ -60,6 +73,12 @@ public class ClinicServiceTests {
     @Autowired
     protected VetRepository vets;
 
+    @Autowired
+    protected EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    protected EntityManager entityManager;
+
     @Test
     public void shouldFindOwnersByLastName() {
         Collection<Owner> owners = this.owners.findByLastName("Davis");
@@ -69,6 +88,72 @@ public class ClinicServiceTests {
         assertThat(owners.isEmpty()).isTrue();
     }
 
+    @Test
+    public void shouldPageOwnersByLastNameUsingKeyset() {
+        List<Integer> page = this.owners.findIdPageByLastName("", PageRequest.of(0, 3));
+        assertThat(page).containsExactly(7, 6, 2);
+
+        page = this.owners.findIdPageByLastNameAfter("", "Davis", "Betty", 2, PageRequest.of(0, 3));
+        assertThat(page).containsExactly(4, 8, 10);
+
+        page = this.owners.findIdPageByLastNameBefore("", "Davis", "Harold", 4, PageRequest.of(0, 3));
+        assertThat(page).containsExactly(2, 6, 7);
+
+        page = this.owners.findIdPageByLastNameAfter("Davis", "Davis", "Harold", 4, PageRequest.of(0, 3));
+        assertThat(page).isEmpty();
+    }
+
+    @Test
+    public void shouldLoadOwnerPageWithPetsAndTypes() {
+        List<Owner> owners = this.owners.findAllWithPetsByIdIn(Arrays.asList(3, 6));
+        assertThat(owners).extracting(Owner::getId).containsOnly(3, 6);
+        for (Owner owner : owners) {
+            assertThat(owner.getPets()).hasSize(2);
+            assertThat(owner.getPets().get(0).getType()).isNotNull();
+        }
+    }
+
+    @Test
+    public void shouldLoadOwnerSummariesWithPetNames() {
+        List<OwnerSummary> owners = this.owners.findSummariesByIdIn(Arrays.asList(3, 5));
+        assertThat(owners).extracting(OwnerSummary::getId).containsExactly(3, 5);
+        assertThat(owners.get(0).getPets()).containsExactly("Jewel", "Rosy");
+        assertThat(owners.get(1).getPets()).containsExactly("George");
+    }
+
+    @Test
+    @Transactional
+    public void shouldListSummaryPetNamesIgnoringCase() {
+        Owner owner3 = this.owners.findById(3);
+        Pet pet = new Pet();
+        pet.setName("kiki");
+        pet.setType(EntityUtils.getById(this.pets.findPetTypes(), PetType.class, 2));
+        pet.setBirthDate(new Date());
+        owner3.addPet(pet);
+        this.pets.save(pet);
+
+        List<OwnerSummary> owners = this.owners.findSummariesByIdIn(Arrays.asList(3));
+        assertThat(owners.get(0).getPets()).containsExactly("Jewel", "kiki", "Rosy");
+    }
+
+    @Test
+    public void shouldStreamOwnerSummariesByLastName() {
+        List<OwnerSummary> owners = new ArrayList<>();
+        this.owners.forEachSummaryByLastName("Davis", owners::add);
+        assertThat(owners).extracting(OwnerSummary::getId).containsExactly(2, 4);
+        assertThat(owners.get(0).getPets()).containsExactly("Basil");
+    }
+
+    @Test
+    public void shouldStreamVisitsByPetId() {
+        List<Visit> visits = new ArrayList<>();
+        this.visits.forEachByPetId(7, visits::add);
+        assertThat(visits).hasSize(2);
+        assertThat(visits.get(0).getDate()).isAfterOrEqualsTo(visits.get(1).getDate());
+        assertThat(visits.get(0).getId()).isNotNull();
+        assertThat(visits).noneMatch(this.entityManager::contains);
+    }
+
     @Test
     public void shouldFindSingleOwnerWithPet() {
         Owner owner = this.owners.findById(1);
@@ -153,6 +238,18 @@ public class ClinicServiceTests {
         assertThat(pet.getId()).isNotNull();
     }
 
+    @Test
+    @Transactional
+    public void shouldKeepPetsSortedWhenRenamed() {
+        Owner owner6 = this.owners.findById(6);
+        assertThat(owner6.getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+
+        owner6.getPet("Max").setName("Tiger");
+
+        assertThat(owner6.getPets()).extracting(Pet::getName).containsExactly("Samantha", "Tiger");
+        assertThat(owner6.getPet("Tiger")).isSameAs(owner6.getPets().get(1));
+    }
+
     @Test
     @Transactional
     public void shouldUpdatePetName() throws Exception {
@@ -178,6 +275,30 @@ public class ClinicServiceTests {
         assertThat(vet.getSpecialties().get(1).getName()).isEqualTo("surgery");
     }
 
+    @Test
+    public void shouldKeepReferenceEntitiesInSecondLevelCache() {
+        Cache cache = this.entityManagerFactory.getCache();
+        cache.evictAll();
+
+        this.pets.findPetTypes();
+        this.vets.findAll();
+
+        assertThat(cache.contains(PetType.class, 1)).isTrue();
+        assertThat(cache.contains(Vet.class, 3)).isTrue();
+        assertThat(cache.contains(Specialty.class, 2)).isTrue();
+        assertThat(cache.contains(Owner.class, 1)).isFalse();
+    }
+
+    @Test
+    public void shouldFindVetSummaries() {
+        List<VetSummary> vets = this.vets.findAllSummaries();
+        assertThat(vets).hasSize(6);
+        VetSummary douglas = vets.get(2);
+        assertThat(douglas.getLastName()).isEqualTo("Douglas");
+        assertThat(douglas.getSpecialties()).containsExactly("dentistry", "surgery");
+        assertThat(vets.get(0).getSpecialties()).isEmpty();
+    }
+
     @Test
     @Transactional
     public void shouldAddNewVisitForPet() {
@@ -194,6 +315,23 @@ public class ClinicServiceTests {
         assertThat(visit.getId()).isNotNull();
     }
 
+    @Test
+    @Transactional
+    public void shouldAddVisitsInBatch() {
+        int found = this.visits.findByPetId(7).size();
+        List<Visit> newVisits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Visit visit = new Visit();
+            visit.setPetId(7);
+            visit.setDescription("batch " + i);
+            newVisits.add(visit);
+        }
+        this.visits.saveAll(newVisits);
+
+        assertThat(newVisits).extracting(Visit::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(this.visits.findByPetId(7)).hasSize(found + 3);
+    }
+
     @Test
     public void shouldFindVisitsByPetId() throws Exception {
         Collection<Visit> visits = this.visits.findByPetId(7);
@@ -203,4 +341,28 @@ public class ClinicServiceTests {
         assertThat(visitArr[0].getPetId()).isEqualTo(7);
     }
 
+    @Test
+    public void shouldFindLatestVisitsByPetIdFirst() {
+        Slice<Visit> latest = this.visits.findPageByPetId(7, PageRequest.of(0, 1));
+        assertThat(latest.getContent()).hasSize(1);
+        assertThat(latest.hasNext()).isTrue();
+
+        Slice<Visit> older = this.visits.findPageByPetId(7, latest.nextPageable());
+        assertThat(older.getContent()).hasSize(1);
+        assertThat(older.hasNext()).isFalse();
+        assertThat(latest.getContent().get(0).getDate()).isAfterOrEqualsTo(older.getContent().get(0).getDate());
+    }
+
+    @Test
+    public void shouldFindLatestVisitsOfSeveralPetsAtOnce() {
+        Map<Integer, Slice<Visit>> latest = this.visits.findFirstPagesByPetIds(Arrays.asList(1, 7, 8), 1);
+        assertThat(latest).containsOnlyKeys(1, 7, 8);
+        assertThat(latest.get(1).getContent()).isEmpty();
+        assertThat(latest.get(1).hasNext()).isFalse();
+        assertThat(latest.get(7).getContent()).extracting("id").containsExactly(4);
+        assertThat(latest.get(7).hasNext()).isTrue();
+        assertThat(latest.get(8).getContent()).extracting("id").containsExactly(3);
+        assertThat(latest.get(8).hasNext()).isTrue();
+    }
+
 }
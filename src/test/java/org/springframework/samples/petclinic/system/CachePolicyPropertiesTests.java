@@ -0,0 +1,39 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link CachePolicyProperties}
+ */
+public class CachePolicyPropertiesTests {
+
+    @Test
+    public void shouldUseDefaultsForUnconfiguredCache() {
+        CachePolicyProperties properties = new CachePolicyProperties();
+        CachePolicyProperties.Policy policy = properties.getPolicy("vets");
+        assertThat(policy.getMaxEntries()).isEqualTo(1000L);
+        assertThat(policy.getStoreByValue()).isTrue();
+        assertThat(policy.getTimeToLive()).isNull();
+    }
+
+    @Test
+    public void shouldOverrideDefaultsPerCache() {
+        CachePolicyProperties properties = new CachePolicyProperties();
+        properties.getDefaults().setTimeToLive(Duration.ofMinutes(10));
+        CachePolicyProperties.Policy owners = new CachePolicyProperties.Policy();
+        owners.setMaxEntries(50L);
+        owners.setOffHeapMb(64L);
+        properties.getCaches().put("owners", owners);
+
+        CachePolicyProperties.Policy policy = properties.getPolicy("owners");
+        assertThat(policy.getMaxEntries()).isEqualTo(50L);
+        assertThat(policy.getOffHeapMb()).isEqualTo(64L);
+        assertThat(policy.getTimeToLive()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(policy.getStoreByValue()).isTrue();
+    }
+
+}
@@ -0,0 +1,300 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Test class for {@link CompressionFilter}
+ */
+public class CompressionFilterTests {
+
+    private CompressionProperties properties;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setup() {
+        this.properties = new CompressionProperties();
+        CompressionProperties.Policy html = new CompressionProperties.Policy();
+        html.setMimeTypes(Collections.singletonList("text/html"));
+        this.properties.getTypes().put("html", html);
+        CompressionProperties.Policy json = new CompressionProperties.Policy();
+        json.setMimeTypes(Arrays.asList("application/json", "application/*+json"));
+        json.setMinSize(16);
+        json.setLevel(1);
+        this.properties.getTypes().put("json", json);
+
+        this.request = new MockHttpServletRequest("GET", "/owners");
+        this.request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        this.response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void shouldMergePolicyWithDefaults() {
+        CompressionProperties.Policy policy = this.properties.getPolicy("application/hal+json;charset=UTF-8");
+        assertThat(policy.getMinSize()).isEqualTo(16);
+        assertThat(policy.getLevel()).isEqualTo(1);
+
+        policy = this.properties.getPolicy("text/html;charset=UTF-8");
+        assertThat(policy.getMinSize()).isEqualTo(2048);
+        assertThat(policy.getLevel()).isEqualTo(6);
+
+        assertThat(this.properties.getPolicy("image/png")).isNull();
+        assertThat(this.properties.getPolicy(null)).isNull();
+    }
+
+    @Test
+    public void shouldCompressLargeResponses() throws Exception {
+        String body = page(5000);
+
+        filter("text/html;charset=UTF-8", body, false);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(this.response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(this.response.getContentLength()).isZero();
+        assertThat(this.response.getContentAsByteArray().length).isLessThan(body.length() / 4);
+        assertThat(gunzip(this.response.getContentAsByteArray())).isEqualTo(body);
+    }
+
+    @Test
+    public void shouldSendResponsesBelowMinimumSizeAsTheyAre() throws Exception {
+        String body = page(1000);
+
+        filter("text/html;charset=UTF-8", body, true);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(this.response.getContentLength()).isEqualTo(body.length());
+        assertThat(this.response.getContentAsString()).isEqualTo(body);
+    }
+
+    @Test
+    public void shouldApplyMinimumSizeOfContentType() throws Exception {
+        filter("application/json", "{\"vets\":[1,2,3,4,5,6]}", false);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gunzip(this.response.getContentAsByteArray())).isEqualTo("{\"vets\":[1,2,3,4,5,6]}");
+    }
+
+    @Test
+    public void shouldPassThroughOtherContentTypes() throws Exception {
+        String body = page(5000);
+
+        filter("text/plain", body, true);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(this.response.getContentLength()).isEqualTo(body.length());
+        assertThat(this.response.getContentAsString()).isEqualTo(body);
+    }
+
+    @Test
+    public void shouldPassThroughEncodedResponses() throws Exception {
+        this.response.setHeader(HttpHeaders.CONTENT_ENCODING, "br");
+
+        filter("text/html", page(5000), false);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+        assertThat(this.response.getContentAsString()).isEqualTo(page(5000));
+    }
+
+    @Test
+    public void shouldNotCompressWithoutAcceptEncoding() throws Exception {
+        this.request = new MockHttpServletRequest("GET", "/owners");
+
+        filter("text/html", page(5000), false);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(this.response.getContentAsString()).isEqualTo(page(5000));
+    }
+
+    @Test
+    public void shouldNotCompressWhenGzipIsRefused() throws Exception {
+        this.request = new MockHttpServletRequest("GET", "/owners");
+        this.request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+
+        filter("text/html", page(5000), false);
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(this.response.getContentAsString()).isEqualTo(page(5000));
+    }
+
+    @Test
+    public void shouldPassNonBlockingWritesToTheContainer() throws Exception {
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        AtomicReference<WriteListener> registered = new AtomicReference<>();
+        ServletOutputStream container = new ServletOutputStream() {
+
+            @Override
+            public boolean isReady() {
+                return false;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                registered.set(listener);
+            }
+
+            @Override
+            public void write(int b) {
+                written.write(b);
+            }
+        };
+        this.response = new MockHttpServletResponse() {
+
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return container;
+            }
+        };
+        WriteListener listener = new WriteListener() {
+
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+            }
+        };
+        AtomicReference<Boolean> ready = new AtomicReference<>();
+        HttpServlet servlet = new HttpServlet() {
+
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/html");
+                ServletOutputStream out = response.getOutputStream();
+                out.setWriteListener(listener);
+                ready.set(out.isReady());
+                out.write(page(5000).getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        filter(servlet);
+
+        assertThat(registered.get()).isSameAs(listener);
+        assertThat(ready.get()).isFalse();
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(new String(written.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(page(5000));
+    }
+
+    @Test
+    public void shouldParseQualityOfAcceptedEncodings() {
+        assertThat(AcceptEncoding.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(AcceptEncoding.acceptsGzip("GZIP; q=0.5")).isTrue();
+        assertThat(AcceptEncoding.acceptsGzip("*")).isTrue();
+        assertThat(AcceptEncoding.acceptsGzip("br")).isFalse();
+        assertThat(AcceptEncoding.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    public void shouldWeakenETagOfCompressedResponses() throws Exception {
+        filter(new HttpServlet() {
+
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/html");
+                response.setHeader(HttpHeaders.ETAG, "\"vets-1-html\"");
+                response.getWriter().write(page(5000));
+            }
+        });
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(this.response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"vets-1-html\"");
+    }
+
+    @Test
+    public void shouldFinishCompressedBodyWhenHandlerFails() throws Exception {
+        String body = page(5000);
+
+        assertThatThrownBy(() -> filter(new HttpServlet() {
+
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+                response.setContentType("text/html");
+                response.getWriter().write(body);
+                response.flushBuffer();
+                throw new ServletException("failed while streaming");
+            }
+        })).hasMessage("failed while streaming");
+
+        assertThat(gunzip(this.response.getContentAsByteArray())).isEqualTo(body);
+    }
+
+    @Test
+    public void shouldForwardContentLengthSetAfterPassingThrough() throws Exception {
+        String body = page(5000);
+
+        filter(new HttpServlet() {
+
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/plain");
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+                response.setContentLength(body.length());
+            }
+        });
+
+        assertThat(this.response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(this.response.getContentLength()).isEqualTo(body.length());
+    }
+
+    private void filter(String contentType, String body, boolean setContentLength) throws Exception {
+        filter(new HttpServlet() {
+
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+                response.setContentType(contentType);
+                if (setContentLength) {
+                    response.setContentLength(body.getBytes(StandardCharsets.UTF_8).length);
+                }
+                response.getWriter().write(body);
+            }
+        });
+    }
+
+    private void filter(HttpServlet servlet) throws Exception {
+        new MockFilterChain(servlet, new CompressionFilter(this.properties)).doFilter(this.request, this.response);
+    }
+
+    private static String page(int length) {
+        StringBuilder page = new StringBuilder(length);
+        while (page.length() < length) {
+            page.append("<tr><td>George Franklin</td><td>110 W. Liberty St.</td></tr>\n");
+        }
+        return page.substring(0, length);
+    }
+
+    private static String gunzip(byte[] gzipped) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+/**
+ * Test class for {@link FragmentCacheDialect}
+ */
+public class FragmentCacheDialectTests {
+
+    private static final String TEMPLATE = "<ul><li th:each=\"pet : ${pets}\" pc:cache=\"${'pet-' + pet}\">"
+        + "<!-- pet --><span th:text=\"${pet + suffix}\">name</span></li></ul>";
+
+    private ConcurrentMapCacheManager cacheManager;
+
+    private ObjectProvider<CacheManager> provider;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        this.cacheManager = new ConcurrentMapCacheManager(FragmentCacheDialect.CACHE_NAME);
+        this.provider = mock(ObjectProvider.class);
+        given(this.provider.getIfAvailable()).willReturn(this.cacheManager);
+    }
+
+    @Test
+    public void shouldCaptureRenderedFragmentsWithoutMarkers() {
+        String html = render("Leo", "Basil");
+
+        assertThat(html).isEqualTo("<ul><li><!-- pet --><span>Leo!</span></li>"
+            + "<li><!-- pet --><span>Basil!</span></li></ul>");
+        assertThat(cache().get("pet-Leo", String.class)).isEqualTo("<li><!-- pet --><span>Leo!</span></li>");
+        assertThat(cache().get("pet-Basil", String.class)).isEqualTo("<li><!-- pet --><span>Basil!</span></li>");
+    }
+
+    @Test
+    public void shouldRenderCachedFragmentsUntilEvicted() {
+        render("Leo", "Basil");
+        cache().evict("pet-Basil");
+
+        String html = engine().process(TEMPLATE, context("?", "Leo", "Basil"));
+
+        assertThat(html).isEqualTo("<ul><li><!-- pet --><span>Leo!</span></li>"
+            + "<li><!-- pet --><span>Basil?</span></li></ul>");
+    }
+
+    @Test
+    public void shouldKeepKeysWithSeparatorsIntact() {
+        render("Max--the-cat");
+
+        assertThat(cache().get("pet-Max--the-cat", String.class)).contains("Max--the-cat!");
+    }
+
+    @Test
+    public void shouldOnlyRemoveAttributeWithoutCache() {
+        given(this.provider.getIfAvailable()).willReturn(null);
+
+        assertThat(render("Leo")).isEqualTo("<ul><li><!-- pet --><span>Leo!</span></li></ul>");
+    }
+
+    private String render(String... pets) {
+        return engine().process(TEMPLATE, context("!", pets));
+    }
+
+    private TemplateEngine engine() {
+        StringTemplateResolver resolver = new StringTemplateResolver();
+        resolver.setTemplateMode(TemplateMode.HTML);
+        TemplateEngine engine = new TemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.addDialect(new FragmentCacheDialect(this.provider));
+        return engine;
+    }
+
+    private static Context context(String suffix, String... pets) {
+        Context context = new Context();
+        context.setVariable("pets", Arrays.asList(pets));
+        context.setVariable("suffix", suffix);
+        return context;
+    }
+
+    private Cache cache() {
+        return this.cacheManager.getCache(FragmentCacheDialect.CACHE_NAME);
+    }
+
+}
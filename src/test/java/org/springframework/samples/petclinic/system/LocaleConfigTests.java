@@ -0,0 +1,40 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Locale;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.LocaleResolver;
+
+/**
+ * Test class for {@link LocaleConfig}
+ */
+public class LocaleConfigTests {
+
+    private final LocaleResolver resolver = new LocaleConfig().localeResolver();
+
+    @Test
+    public void shouldResolveSupportedLanguages() {
+        assertThat(resolve("de-AT,de;q=0.8")).isEqualTo(Locale.GERMAN);
+        assertThat(resolve("en-US")).isEqualTo(Locale.ENGLISH);
+    }
+
+    @Test
+    public void shouldFallBackToEnglish() {
+        assertThat(resolve("ja-JP")).isEqualTo(Locale.ENGLISH);
+        assertThat(resolve("fr-CA,fr;q=0.9")).isEqualTo(Locale.ENGLISH);
+        assertThat(resolve(null)).isEqualTo(Locale.ENGLISH);
+    }
+
+    private Locale resolve(String acceptLanguage) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (acceptLanguage != null) {
+            request.addHeader(HttpHeaders.ACCEPT_LANGUAGE, acceptLanguage);
+        }
+        return this.resolver.resolveLocale(request);
+    }
+
+}
@@ -1,12 +1,24 @@
 package org.springframework.samples.petclinic.system;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -15,9 +27,63 @@ public class ProductionConfigurationTests {
     @Autowired
     private VetRepository vets;
 
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
     @Test
     public void testFindAll() throws Exception {
         vets.findAll();
         vets.findAll(); // served from cache
     }
+
+    @Test
+    public void testFindOwnerByIdIsCachedUntilSaved() throws Exception {
+        Owner owner = owners.findById(1);
+        assertThat(cacheManager.getCache("owners").get(1)).isNotNull();
+        assertThat(owners.findById(1).getPets()).hasSameSizeAs(owner.getPets()); // served from cache
+
+        owners.save(owner);
+        assertThat(cacheManager.getCache("owners").get(1)).isNull();
+    }
+
+    @Test
+    public void testSavingVisitsEvictsOnlyTheirPetFragmentsOnCommit() throws Exception {
+        owners.findById(1);
+        cacheManager.getCache("fragments").put("pet-1", "<tr>Leo</tr>");
+        cacheManager.getCache("fragments").put("pet-2", "<tr>Basil</tr>");
+        Visit first = new Visit();
+        first.setPetId(1);
+        first.setDescription("cache test check-up");
+        Visit second = new Visit();
+        second.setPetId(1);
+        second.setDescription("cache test vaccination");
+
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                visits.saveAll(Arrays.asList(first, second));
+                // a page rendered before the commit must not cache the old visits again
+                assertThat(cacheManager.getCache("fragments").get("pet-1")).isNotNull();
+                return null;
+            });
+
+            assertThat(cacheManager.getCache("fragments").get("pet-1")).isNull();
+            assertThat(cacheManager.getCache("fragments").get("pet-2")).isNotNull();
+            assertThat(cacheManager.getCache("owners").get(1)).isNotNull();
+        } finally {
+            jdbc.update("DELETE FROM visits WHERE description LIKE 'cache test %'");
+            cacheManager.getCache("fragments").clear();
+        }
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Holds the main pages to their SQL statement budgets, so that a change introducing an N+1 select fails the build.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "petclinic.sql.counting.enabled=true")
+@AutoConfigureMockMvc
+public class QueryBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void ownersListHasNoRepeatedStatements() throws Exception {
+        QueryCounter.count(() -> this.mockMvc.perform(get("/owners").param("lastName", ""))
+            .andExpect(status().isOk()))
+            .assertStatementsAtMost(3)
+            .assertNoRepeatedStatements(2);
+    }
+
+    @Test
+    public void ownerDetailsStayWithinBudget() throws Exception {
+        QueryCounter.count(() -> this.mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk()))
+            .assertStatementsAtMost(4)
+            .assertNoRepeatedStatements(3);
+    }
+
+    @Test
+    public void vetListStaysWithinBudget() throws Exception {
+        QueryCounter.count(() -> this.mockMvc.perform(get("/vets.html")).andExpect(status().isOk()))
+            .assertStatementsAtMost(1);
+    }
+
+}
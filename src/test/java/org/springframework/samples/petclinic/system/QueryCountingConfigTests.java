@@ -0,0 +1,51 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Objects;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Test class for {@link QueryCountingConfig}
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "petclinic.sql.counting.enabled=true")
+public class QueryCountingConfigTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private List<DataSourcePoolMetadataProvider> metadataProviders;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void shouldKeepThePoolVisibleBehindTheCountingDataSource() throws Exception {
+        assertThat(this.dataSource).isNotInstanceOf(HikariDataSource.class);
+        assertThat(this.dataSource.unwrap(HikariDataSource.class)).isNotNull();
+
+        DataSourcePoolMetadata metadata = this.metadataProviders.stream()
+            .map(provider -> provider.getDataSourcePoolMetadata(this.dataSource)).filter(Objects::nonNull)
+            .findFirst().orElse(null);
+        assertThat(metadata).isNotNull();
+        assertThat(metadata.getMax()).isPositive();
+
+        this.dataSource.getConnection().close();
+        assertThat(this.registry.find("hikaricp.connections").gauge()).isNotNull();
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Test class for {@link QueryCountingDataSource} and {@link QueryCounter}
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class QueryCountingDataSourceTests {
+
+    private static final String FIND_PETS = "SELECT name FROM pets WHERE owner_id = ?";
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setup() {
+        this.jdbc = new JdbcTemplate(QueryCountingDataSource.wrap(this.dataSource));
+    }
+
+    @Test
+    public void shouldCountStatementsAndRows() throws Exception {
+        QueryStats stats = QueryCounter.count(() -> this.jdbc.queryForList("SELECT id FROM owners"));
+
+        assertThat(stats.getStatements()).isEqualTo(1);
+        assertThat(stats.getRows()).isEqualTo(10);
+        assertThat(stats.getExecutions()).containsEntry("SELECT id FROM owners", 1);
+    }
+
+    @Test
+    public void shouldNotCountOutsideOfScope() throws Exception {
+        this.jdbc.queryForList("SELECT id FROM owners");
+        QueryStats stats = QueryCounter.count(() -> this.jdbc.queryForObject("SELECT COUNT(*) FROM vets", Long.class));
+
+        assertThat(stats.getStatements()).isEqualTo(1);
+        assertThat(stats.getRows()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountIntoNestedScopes() throws Exception {
+        QueryStats outer = QueryCounter.begin();
+        QueryStats inner;
+        try {
+            this.jdbc.queryForList("SELECT id FROM vets");
+            inner = QueryCounter.count(() -> this.jdbc.queryForList("SELECT id FROM types"));
+        } finally {
+            QueryCounter.end(outer);
+        }
+
+        assertThat(outer.getStatements()).isEqualTo(2);
+        assertThat(inner.getStatements()).isEqualTo(1);
+        assertThat(inner.getRows()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldReportRepeatedStatements() throws Exception {
+        QueryStats stats = QueryCounter.count(() -> {
+            for (int owner = 1; owner <= 5; owner++) {
+                this.jdbc.queryForList(FIND_PETS, String.class, owner);
+            }
+            return null;
+        });
+
+        assertThat(stats.getRepeated(5)).containsOnlyKeys(FIND_PETS);
+        stats.assertStatementsAtMost(5).assertNoRepeatedStatements(6);
+        assertThatThrownBy(() -> stats.assertStatementsAtMost(4)).isInstanceOf(AssertionError.class)
+            .hasMessageContaining("5 x " + FIND_PETS);
+        assertThatThrownBy(() -> stats.assertNoRepeatedStatements(5)).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    public void shouldUnwrapToTheTargetDataSource() throws Exception {
+        DriverManagerDataSource target = new DriverManagerDataSource();
+        DataSource wrapped = QueryCountingDataSource.wrap(target);
+
+        assertThat(wrapped.isWrapperFor(DriverManagerDataSource.class)).isTrue();
+        assertThat(wrapped.unwrap(DriverManagerDataSource.class)).isSameAs(target);
+    }
+
+}
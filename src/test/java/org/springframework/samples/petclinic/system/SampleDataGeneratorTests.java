@@ -0,0 +1,80 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.vet.VetsChangedEvent;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link SampleDataGenerator}
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class SampleDataGeneratorTests {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SampleDataProperties properties;
+
+    private final List<Object> published = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        this.properties = new SampleDataProperties();
+        this.properties.setOwners(25);
+        this.properties.setPetsPerOwner(2);
+        this.properties.setVisitsPerPet(3);
+        this.properties.setVets(4);
+        this.properties.setBatchSize(10);
+    }
+
+    @Test
+    public void shouldInsertConfiguredNumberOfRows() {
+        int owners = count("owners");
+        int pets = count("pets");
+        int visits = count("visits");
+        int vets = count("vets");
+
+        new SampleDataGenerator(this.jdbc, this.transactionManager, this.properties, this.published::add).generate();
+
+        assertThat(count("owners")).isEqualTo(owners + 25);
+        assertThat(count("pets")).isEqualTo(pets + 50);
+        assertThat(count("visits")).isEqualTo(visits + 150);
+        assertThat(count("vets")).isEqualTo(vets + 4);
+        assertThat(this.published).hasOnlyElementsOfType(VetsChangedEvent.class).hasSize(1);
+    }
+
+    @Test
+    public void shouldBeDeterministicForSameSeed() {
+        new SampleDataGenerator(this.jdbc, this.transactionManager, this.properties, this.published::add).generate();
+        List<String> first = lastInsertedOwners();
+        new SampleDataGenerator(this.jdbc, this.transactionManager, this.properties, this.published::add).generate();
+        List<String> second = lastInsertedOwners();
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    private List<String> lastInsertedOwners() {
+        return this.jdbc.queryForList("SELECT first_name || ' ' || last_name || ' ' || telephone FROM owners "
+            + "WHERE id > (SELECT MAX(id) FROM owners) - 25 ORDER BY id", String.class);
+    }
+
+    private int count(String table) {
+        return this.jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+/**
+ * Test class for {@link StaticResourcesConfig}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = WelcomeController.class)
+public class StaticResourcesConfigTests {
+
+    private static final String FINGERPRINTED_JQUERY = "/webjars/jquery/jquery.min-[0-9a-f]{32}\\.js";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
+    @Test
+    public void shouldLinkFingerprintedResources() throws Exception {
+        String html = this.mockMvc.perform(get("/")).andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(html).containsPattern(FINGERPRINTED_JQUERY);
+        assertThat(html).containsPattern("/resources/images/pets-[0-9a-f]{32}\\.png");
+    }
+
+    @Test
+    public void shouldServeFingerprintedResourcesAsImmutable() throws Exception {
+        String url = jquery();
+
+        this.mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void shouldRevalidatePlainResources() throws Exception {
+        this.mockMvc.perform(get("/webjars/jquery/jquery.min.js"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    public void shouldServeGzippedVariant() throws Exception {
+        String url = jquery();
+        byte[] plain = this.mockMvc.perform(get(url)).andReturn().getResponse().getContentAsByteArray();
+
+        byte[] gzipped = this.mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, FingerprintedResourcesFilter.IMMUTABLE))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(gzipped.length).isLessThan(plain.length / 2);
+        assertThat(gunzip(gzipped)).isEqualTo(plain);
+    }
+
+    @Test
+    public void shouldRewriteLinksInGzippedStyleSheets() throws Exception {
+        String url = this.resourceUrlProvider.getForLookupPath("/resources/css/petclinic.css");
+
+        byte[] gzipped = this.mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        String css = new String(gunzip(gzipped), StandardCharsets.UTF_8);
+        assertThat(css).containsPattern("fonts/varela_round-webfont-[0-9a-f]{32}\\.woff");
+        assertThat(css).doesNotContain("varela_round-webfont.woff");
+    }
+
+    @Test
+    public void shouldNotServeGzipRefusedWithZeroQuality() throws Exception {
+        this.mockMvc.perform(get(jquery()).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void shouldNotCompressImages() throws Exception {
+        String url = this.resourceUrlProvider.getForLookupPath("/resources/images/pets.png");
+
+        this.mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(header().doesNotExist(HttpHeaders.VARY));
+    }
+
+    private String jquery() {
+        String url = this.resourceUrlProvider.getForLookupPath("/webjars/jquery/jquery.min.js");
+        assertThat(url).matches(FINGERPRINTED_JQUERY);
+        return url;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+}
@@ -1,13 +1,15 @@
 package org.springframework.samples.petclinic.vet;
 
 import static org.hamcrest.xml.HasXPath.hasXPath;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 import org.assertj.core.util.Lists;
 import org.junit.Before;
@@ -16,6 +18,9 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -25,7 +30,10 @@ import org.springframework.test.web.servlet.ResultActions;
  * Test class for the {@link VetController}
  */
 @RunWith(SpringRunner.class)
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+    includeFilters = @ComponentScan.Filter(
+                            value = VetResponseCache.class,
+                            type = FilterType.ASSIGNABLE_TYPE))
 public class VetControllerTests {
 
     @Autowired
@@ -34,6 +42,9 @@ public class VetControllerTests {
     @MockBean
     private VetRepository vets;
 
+    @Autowired
+    private VetResponseCache responses;
+
     @Before
     public void setup() {
         Vet james = new Vet();
@@ -49,14 +60,53 @@ public class VetControllerTests {
         radiology.setName("radiology");
         helen.addSpecialty(radiology);
         given(this.vets.findAll()).willReturn(Lists.newArrayList(james, helen));
+        given(this.vets.findAllSummaries()).willReturn(Lists.newArrayList(
+            new VetSummary(1, "James", "Carter", null), new VetSummary(2, "Helen", "Leary", "radiology")));
+        responses.invalidate();
     }
 
     @Test
     public void testShowVetListHtml() throws Exception {
         mockMvc.perform(get("/vets.html"))
             .andExpect(status().isOk())
-            .andExpect(model().attributeExists("vets"))
-            .andExpect(view().name("vets/vetList"));
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_HTML))
+            .andExpect(content().string(containsString("Helen Leary")))
+            .andExpect(content().string(containsString("radiology")));
+    }
+
+    @Test
+    public void testShowVetListVariesByAcceptAndLanguage() throws Exception {
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Language"));
+        String etag = mockMvc.perform(get("/vets.html"))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Language"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Language"));
+    }
+
+    @Test
+    public void testShowVetListHtmlIsRenderedOnce() throws Exception {
+        mockMvc.perform(get("/vets.html")).andExpect(status().isOk());
+        mockMvc.perform(get("/vets.html"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("Helen Leary")));
+        verify(this.vets, times(1)).findAllSummaries();
+    }
+
+    @Test
+    public void testShowVetListNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+        responses.invalidate();
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
     }
 
     @Test
@@ -0,0 +1,212 @@
+package org.springframework.samples.petclinic.visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Test class for {@link VisitIntakeQueue}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class VisitIntakeQueueTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private VisitRepository visits;
+
+    private final List<Visit> saved = new CopyOnWriteArrayList<>();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private VisitIntakeProperties properties;
+
+    @Before
+    public void setup() throws Exception {
+        this.properties = new VisitIntakeProperties();
+        this.properties.setJournal(this.folder.getRoot().toPath().resolve("visits.journal"));
+        this.properties.setBatchSize(10);
+    }
+
+    @Test
+    public void shouldPersistAcceptedVisitsAndEmptyJournal() throws Exception {
+        recordSavedVisits();
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        for (int i = 0; i < 3; i++) {
+            assertThat(intake.submit(visit("checkup " + i))).isTrue();
+        }
+        intake.stop();
+
+        assertThat(this.saved).extracting(Visit::getDescription).containsExactly("checkup 0", "checkup 1", "checkup 2");
+        assertThat(Files.size(this.properties.getJournal())).isZero();
+        assertThat(this.registry.get("petclinic.visits.intake.queue").gauge().value()).isZero();
+        assertThat(this.registry.get("petclinic.visits.intake.commit").timer().count()).isPositive();
+    }
+
+    @Test
+    public void shouldForceJournalOncePerGroupOfConcurrentSubmissions() throws Exception {
+        recordSavedVisits();
+        this.properties.setQueueCapacity(1000);
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> accepted = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String description = "checkup " + i;
+                accepted.add(submitters.submit(() -> intake.submit(visit(description))));
+            }
+            for (Future<Boolean> future : accepted) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            submitters.shutdown();
+        }
+        intake.stop();
+
+        assertThat(this.saved).hasSize(200);
+        // every visit is covered by exactly one force, and no force covers nothing
+        assertThat(this.registry.get("petclinic.visits.intake.sync").summary().totalAmount()).isEqualTo(200);
+        assertThat(this.registry.get("petclinic.visits.intake.sync").summary().count()).isBetween(1L, 200L);
+        assertThat(Files.size(this.properties.getJournal())).isZero();
+    }
+
+    @Test
+    public void shouldReplayUncommittedVisitsOnStart() throws Exception {
+        recordSavedVisits();
+        Path journal = this.properties.getJournal();
+        Files.write(journal, Arrays.asList(
+            "V 1 7 1514764800000 " + encode("committed"),
+            "V 2 7 1514764800000 " + encode("lost in crash"),
+            "C 1",
+            "V 3 7 15147"), StandardCharsets.UTF_8);
+
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        intake.stop();
+
+        assertThat(this.saved).extracting(Visit::getDescription).containsExactly("lost in crash");
+        assertThat(this.saved.get(0).getPetId()).isEqualTo(7);
+        assertThat(Files.size(journal)).isZero();
+    }
+
+    @Test
+    public void shouldRejectVisitsWhenQueueIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(this.visits).saveAll(any());
+        this.properties.setQueueCapacity(1);
+        this.properties.setOfferTimeout(Duration.ofMillis(10));
+
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        assertThat(intake.submit(visit("first"))).isTrue();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(intake.submit(visit("second"))).isFalse();
+        release.countDown();
+        intake.stop();
+
+        assertThat(this.registry.get("petclinic.visits.intake.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDeadLetterRefusedVisitsAndPersistTheOthers() throws Exception {
+        willAnswer(invocation -> {
+            List<Visit> batch = new ArrayList<>();
+            invocation.<Iterable<Visit>>getArgument(0).forEach(batch::add);
+            if (batch.stream().anyMatch(visit -> visit.getDescription().startsWith("poison"))) {
+                throw new DataIntegrityViolationException("value too long for column description");
+            }
+            this.saved.addAll(batch);
+            return null;
+        }).given(this.visits).saveAll(any());
+        Path journal = this.properties.getJournal();
+        Files.write(journal, Arrays.asList(
+            "V 1 7 1514764800000 " + encode("checkup"),
+            "V 2 7 1514764800000 " + encode("poison"),
+            "V 3 7 1514764800000 " + encode("vaccination")), StandardCharsets.UTF_8);
+        this.properties.setDeadLetters(this.folder.getRoot().toPath().resolve("visits.dead-letters"));
+
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        assertThat(intake.submit(visit("poison again"))).isTrue();
+        assertThat(intake.submit(visit("x-ray"))).isTrue();
+        intake.stop();
+
+        assertThat(this.saved).extracting(Visit::getDescription).containsExactly("checkup", "vaccination", "x-ray");
+        assertThat(Files.size(journal)).isZero();
+        List<String> deadLetters = Files.readAllLines(this.properties.getDeadLetters(), StandardCharsets.UTF_8);
+        assertThat(deadLetters).hasSize(2);
+        assertThat(deadLetters.get(0)).isEqualTo("V 2 7 1514764800000 " + encode("poison"));
+        assertThat(deadLetters.get(1)).endsWith(encode("poison again"));
+    }
+
+    @Test
+    public void shouldRejectVisitsWithoutDateAndKeepTheirPermit() throws Exception {
+        recordSavedVisits();
+        this.properties.setQueueCapacity(1);
+        VisitIntakeQueue intake = new VisitIntakeQueue(this.visits, this.properties, this.registry);
+        intake.start();
+        Visit undated = visit("undated");
+        undated.setDate(null);
+        assertThatThrownBy(() -> intake.submit(undated)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(intake.submit(visit("dated"))).isTrue();
+        intake.stop();
+
+        assertThat(this.saved).extracting(Visit::getDescription).containsExactly("dated");
+    }
+
+    private void recordSavedVisits() {
+        willAnswer(invocation -> {
+            for (Visit visit : invocation.<Iterable<Visit>>getArgument(0)) {
+                this.saved.add(visit);
+            }
+            return null;
+        }).given(this.visits).saveAll(any());
+    }
+
+    private static Visit visit(String description) {
+        Visit visit = new Visit();
+        visit.setPetId(7);
+        visit.setDescription(description);
+        return visit;
+    }
+
+    private static String encode(String description) {
+        return Base64.getEncoder().encodeToString(description.getBytes(StandardCharsets.UTF_8));
+    }
+
+}